@@ -0,0 +1,22 @@
+#!/bin/bash
+# Compares the Java and CRT S3 engines uploading a large file to a local LocalStack S3.
+# LocalStack's s3.localhost.localstack.cloud resolves to 127.0.0.1 and serves
+# virtual-hosted buckets, which the CRT client requires.
+# Usage: scripts/bench-s3-transfer.sh [sizeMb]
+set -e
+
+DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+SIZE_MB=${1:-4096}
+NAME="cj-bench-localstack"
+
+docker run -d --rm --name $NAME -p 4566:4566 -e SERVICES=s3 docker.io/localstack/localstack
+trap "docker stop $NAME" EXIT
+until curl -sf http://localhost:4566/_localstack/health > /dev/null; do sleep 1; done
+
+export AWS_ACCESS_KEY_ID=test
+export AWS_SECRET_ACCESS_KEY=test
+"$DIR/../mvnw" -B test \
+  -DskipTests=false \
+  -Dtest=S3TransferBenchmark \
+  -Dcj.bench.s3.endpoint=http://s3.localhost.localstack.cloud:4566 \
+  -Dcj.bench.s3.sizeMb=$SIZE_MB
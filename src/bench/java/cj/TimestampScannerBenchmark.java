@@ -0,0 +1,95 @@
+package cj;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Timestamp parsing per log line: the previous regex + DateTimeFormatter parser against {@link TimestampScanner}.
+ * Reads the log given by -Dcj.bench.log (e.g. an .openshift_install.log), or a built-in sample.
+ * <p>
+ * mvn -Pbench test-compile exec:exec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimestampScannerBenchmark {
+    static final Pattern NOSEP_REGEX = Pattern.compile("\\d{14}");
+    static final Pattern TIME0_REGEX = Pattern.compile("\\d{2}:\\d{2}:\\d{2}\\.\\d{6}");
+    static final DateTimeFormatter NOSEP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    static final DateTimeFormatter TIME0_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSSSSS");
+
+    static final List<String> SAMPLE = List.of(
+            "time=\"2023-02-08T18:17:16Z\" level=debug msg=\"OpenShift Installer 4.12.2\"",
+            "time=\"2023-02-08T18:17:16Z\" level=debug msg=\"  Loading Install Config...\"",
+            "I0208 18:17:16.123456    1234 reflector.go:219] Starting reflector *v1.Pod",
+            "Feb  8 18:17:16 bootstrap kubelet[1234]: I0208 started",
+            "log-bundle-20230208181716.tar.gz",
+            "    Fetching images for cluster, this could take a while");
+
+    List<String> lines;
+    LocalDate baseDay = LocalDate.of(2023, 2, 8);
+    long baseDayMillis = baseDay.toEpochDay() * TimestampScanner.MS_PER_DAY;
+
+    @Setup
+    public void setup() throws IOException {
+        var log = System.getProperty("cj.bench.log");
+        lines = log == null ? SAMPLE : Files.readAllLines(Path.of(log), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void regex(Blackhole bh) {
+        for (var line : lines) {
+            bh.consume(regexTimestamp(line));
+        }
+    }
+
+    @Benchmark
+    public void scanner(Blackhole bh) {
+        for (var line : lines) {
+            bh.consume(TimestampScanner.scan(line, baseDayMillis));
+        }
+    }
+
+    Long regexTimestamp(String line) {
+        var matcher = NOSEP_REGEX.matcher(line);
+        if (matcher.find()) {
+            try {
+                return LocalDateTime.parse(matcher.group(0), NOSEP_FORMAT).toInstant(ZoneOffset.UTC).toEpochMilli();
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+        matcher = TIME0_REGEX.matcher(line);
+        if (matcher.find()) {
+            var time = LocalTime.parse(matcher.group(0), TIME0_FORMAT);
+            return LocalDateTime.of(baseDay, time).toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+        return null;
+    }
+}
@@ -18,6 +18,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -50,6 +53,9 @@ public class BaseTask
     @Inject
     Logger log;
 
+    @Inject
+    ManagedExecutors executors;
+
     @Override
     public Logger log(){return log;}
 
@@ -172,6 +178,10 @@ public class BaseTask
         return config;
     }
 
+    protected ManagedExecutors executors() {
+        return executors;
+    }
+
 
     @Override
     public Map<Input, Object> inputs() {
@@ -287,7 +297,7 @@ public class BaseTask
         var msg = fmt(message);
         error(msg, cause);
         getErrors().put(Message, msg);
-        return new TaskFailedException(msg);
+        return new TaskFailedException(msg, cause);
     }
 
     protected RuntimeException fail(String message, Object... args) {
@@ -345,6 +355,75 @@ public class BaseTask
         stream.forEach(consumer);
     }
 
+    /**
+     * Runs the consumer over the list with at most {@code limit} concurrent calls on the shared io pool,
+     * waits for all of them and rethrows the first failure.
+     * The calling thread works through the list too, so nested calls finish even when the pool is busy;
+     * the limit is an upper bound, fewer items run at once when the pool is short of threads.
+     * Use {@link #forEachDedicated} for items that must all run at the same time.
+     */
+    protected <T> void forEachConcurrent(List<T> list, int limit, Consumer<T> consumer) {
+        if (list.isEmpty()) return;
+        var threads = Math.max(1, Math.min(limit, list.size()));
+        if (threads == 1) {
+            list.forEach(consumer);
+            return;
+        }
+        var pending = new ConcurrentLinkedQueue<>(list);
+        var failure = new AtomicReference<RuntimeException>();
+        // Helpers join the phaser before taking items; those still queued when the caller is done are not waited for
+        var working = new Phaser(1);
+        Runnable worker = () -> {
+            T item;
+            while ((item = pending.poll()) != null) {
+                try {
+                    consumer.accept(item);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        };
+        for (int i = 1; i < threads; i++) {
+            executors.io().execute(() -> {
+                if (working.register() < 0) return;
+                try {
+                    worker.run();
+                } finally {
+                    working.arriveAndDeregister();
+                }
+            });
+        }
+        worker.run();
+        working.arriveAndAwaitAdvance();
+        working.forceTermination();
+        if (failure.get() != null) throw failure.get();
+    }
+
+    /**
+     * Runs the consumer over every item at once, each on a dedicated thread, waits for all of them
+     * and rethrows the first failure. For items that never finish on their own, such as followed files.
+     */
+    protected <T> void forEachDedicated(List<T> list, String name, Consumer<T> consumer) {
+        var failure = new AtomicReference<RuntimeException>();
+        var threads = list.stream()
+                .map(item -> executors.startDedicated(name, () -> {
+                    try {
+                        consumer.accept(item);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }))
+                .toList();
+        try {
+            for (var thread : threads) thread.join();
+        } catch (InterruptedException e) {
+            threads.forEach(Thread::interrupt);
+            Thread.currentThread().interrupt();
+            throw fail(e);
+        }
+        if (failure.get() != null) throw failure.get();
+    }
+
     protected Template getTemplate(String location) {
         return templates.getTemplate(location);
     }
@@ -1,8 +1,10 @@
 package cj;
 
+import cj.logs.LogsConfiguration;
 import cj.aws.AWSConfiguration;
 import cj.hello.HelloConfiguration;
 import cj.ocp.OCPConfiguration;
+import cj.shell.RedactConfiguration;
 import io.quarkus.runtime.annotations.StaticInitSafe;
 import io.smallrye.config.ConfigMapping;
 import io.smallrye.config.WithDefault;
@@ -45,6 +47,9 @@ public interface CJConfiguration {
     @WithName("report")
     ReportConfiguration report();
 
+    @WithName("logs")
+    LogsConfiguration logs();
+
     @WithName("capabilities")
     Optional<List<String>> capabilities();
 
@@ -84,10 +89,24 @@ public interface CJConfiguration {
     @WithDefault("5")
     Long execTimeout();
 
+    @WithName("execTailLines")
+    @WithDefault("1000")
+    int execTailLines();
+
     @WithName("bypass")
     @WithDefault("true")
     boolean bypass();
 
+    @WithName("bypassConcurrency")
+    @WithDefault("4")
+    int bypassConcurrency();
+
+    @WithName("executors")
+    ExecutorsConfiguration executors();
+
+    @WithName("redact")
+    RedactConfiguration redact();
+
     @WithName("consoleLevel")
     @WithDefault("info")
     String consoleLevel();
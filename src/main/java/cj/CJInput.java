@@ -4,6 +4,8 @@ public enum CJInput implements Input {
     task,
     tasks,
     fixTask,
+    retryUntil,
+    retryOn,
     regionTask, identityTask, query, prompt, properties, scope, dryRun
 
 
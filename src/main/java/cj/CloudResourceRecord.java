@@ -1,11 +1,51 @@
 package cj;
 
+import java.time.Instant;
 import java.util.Map;
 
-public class CloudResourceRecord {
-    CloudResourceType type;
-    String placement;
-    String name;
-    Map<String, String> properties;
-    Boolean matchesFilter;
+/**
+ * Provider-neutral view of a cloud resource, as matched by filters and exported to reports.
+ */
+public record CloudResourceRecord(
+        CloudResourceType type,
+        String placement,
+        String id,
+        String name,
+        String state,
+        String vpcId,
+        Instant createTime,
+        Map<String, String> tags,
+        Map<String, String> properties,
+        Boolean matchesFilter) {
+
+    public static CloudResourceRecord of(CloudResourceType type,
+                                         String id,
+                                         String name,
+                                         String state,
+                                         String vpcId,
+                                         Instant createTime,
+                                         Map<String, String> tags) {
+        return new CloudResourceRecord(type,
+                null,
+                id,
+                name,
+                state,
+                vpcId,
+                createTime,
+                tags == null ? Map.of() : tags,
+                Map.of(),
+                null);
+    }
+
+    public String tag(String key) {
+        return tags.get(key);
+    }
+
+    public CloudResourceRecord withPlacement(String placement) {
+        return new CloudResourceRecord(type, placement, id, name, state, vpcId, createTime, tags, properties, matchesFilter);
+    }
+
+    public CloudResourceRecord withMatch(boolean match) {
+        return new CloudResourceRecord(type, placement, id, name, state, vpcId, createTime, tags, properties, match);
+    }
 }
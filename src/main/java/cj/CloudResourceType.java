@@ -3,6 +3,20 @@ package cj;
 public interface CloudResourceType {
 
     enum aws implements CloudResourceType {
-        region
+        region,
+        address,
+        classicLoadBalancer,
+        instance,
+        internetGateway,
+        loadBalancer,
+        natGateway,
+        networkInterface,
+        record,
+        routeTable,
+        securityGroup,
+        subnet,
+        targetGroup,
+        vpc,
+        vpcEndpoint
     }
 }
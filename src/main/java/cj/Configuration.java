@@ -96,6 +96,17 @@ public class Configuration {
         return objects.allTaskConfigurations();
     }
 
+    /**
+     * How many repetitions of the query may run at once: bypass processes are independent and run
+     * up to cj.bypassConcurrency at a time, other tasks repeat one at a time.
+     */
+    public int repeatConcurrency(List<String> query) {
+        var isBypass = taskConfigForQuery(query)
+                .flatMap(TaskConfiguration::bypass)
+                .isPresent();
+        return isBypass ? config.bypassConcurrency() : 1;
+    }
+
     public Optional<TaskConfiguration> taskConfigForQuery(List<String> query) {
         return taskConfigForQuery(query.toArray(new String[0]));
     }
@@ -1,23 +1,20 @@
 package cj;
 
-import io.quarkus.runtime.Startup;
-import org.slf4j.Logger;
-
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
+/**
+ * Plain {@link ExecutorService} injection points share the io pool of {@link ManagedExecutors}.
+ */
 @ApplicationScoped
-@Startup
 public class ExecutorServiceProducer {
     @Inject
-    Logger log;
+    ManagedExecutors executors;
 
     @Produces
-    public synchronized ExecutorService newExecutor() {
-        log.trace("Producing new ExecutorService");
-        return Executors.newWorkStealingPool();
+    public ExecutorService executor() {
+        return executors.io();
     }
 }
@@ -0,0 +1,37 @@
+package cj;
+
+import io.quarkus.runtime.annotations.StaticInitSafe;
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import io.smallrye.config.WithName;
+
+import java.util.Optional;
+
+@ConfigMapping
+@StaticInitSafe
+public interface ExecutorsConfiguration {
+    @WithName("io.threads")
+    @WithDefault("64")
+    int ioThreads();
+
+    /**
+     * Defaults to the number of available processors.
+     */
+    @WithName("cpu.threads")
+    Optional<Integer> cpuThreads();
+
+    /**
+     * Two per running process, one for stdout and one for stderr.
+     */
+    @WithName("gobblers.threads")
+    @WithDefault("64")
+    int gobblerThreads();
+
+    @WithName("keepAliveSeconds")
+    @WithDefault("30")
+    long keepAliveSeconds();
+
+    @WithName("shutdownSeconds")
+    @WithDefault("10")
+    long shutdownSeconds();
+}
@@ -0,0 +1,150 @@
+package cj;
+
+import io.quarkus.runtime.ShutdownEvent;
+import org.slf4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The application's shared thread pools, sized by cj.executors.* and shut down with the application.
+ * <ul>
+ *     <li>io: blocking calls to cloud APIs and files</li>
+ *     <li>cpu: parsing and compression</li>
+ *     <li>gobblers: draining the output of shell processes</li>
+ * </ul>
+ * Idle threads time out, so an unused pool holds no threads.
+ * Work that never finishes, such as following a file, gets a dedicated thread instead of a pool thread.
+ */
+@ApplicationScoped
+public class ManagedExecutors {
+    public record Gauge(String pool,
+                        int threads,
+                        int active,
+                        int queued,
+                        int peakQueued,
+                        int largest,
+                        long completed) {}
+
+    @Inject
+    Logger log;
+
+    @Inject
+    CJConfiguration config;
+
+    private Pool io;
+    private Pool cpu;
+    private Pool gobblers;
+    private final Set<Thread> dedicated = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger dedicatedCount = new AtomicInteger();
+
+    @PostConstruct
+    void init() {
+        var cfg = config.executors();
+        var processors = Runtime.getRuntime().availableProcessors();
+        io = new Pool("io", cfg.ioThreads(), cfg.keepAliveSeconds());
+        cpu = new Pool("cpu", cfg.cpuThreads().orElse(processors), cfg.keepAliveSeconds());
+        gobblers = new Pool("gobblers", cfg.gobblerThreads(), cfg.keepAliveSeconds());
+    }
+
+    public ExecutorService io() {
+        return io;
+    }
+
+    public ExecutorService cpu() {
+        return cpu;
+    }
+
+    public ExecutorService gobblers() {
+        return gobblers;
+    }
+
+    /**
+     * Starts the task on a new daemon thread, interrupted on shutdown if still running.
+     */
+    public Thread startDedicated(String name, Runnable task) {
+        var thread = new Thread(() -> {
+            try {
+                task.run();
+            } finally {
+                dedicated.remove(Thread.currentThread());
+            }
+        }, "cj-%s-%d".formatted(name, dedicatedCount.incrementAndGet()));
+        thread.setDaemon(true);
+        dedicated.add(thread);
+        thread.start();
+        return thread;
+    }
+
+    public List<Gauge> gauges() {
+        return List.of(io.gauge(), cpu.gauge(), gobblers.gauge());
+    }
+
+    void onStop(@Observes ShutdownEvent ev) {
+        var timeout = config.executors().shutdownSeconds();
+        var pools = List.of(io, cpu, gobblers);
+        pools.forEach(ThreadPoolExecutor::shutdown);
+        dedicated.forEach(Thread::interrupt);
+        for (var pool : pools) {
+            log.trace("Executor {}", pool.gauge());
+            try {
+                if (!pool.awaitTermination(timeout, TimeUnit.SECONDS)) {
+                    log.warn("Executor {} did not stop in {}s, interrupting {} tasks",
+                            pool.name, timeout, pool.getActiveCount());
+                    pool.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    static class Pool extends ThreadPoolExecutor {
+        final String name;
+        private final AtomicInteger peakQueued = new AtomicInteger();
+
+        Pool(String name, int threads, long keepAliveSeconds) {
+            super(threads, threads, keepAliveSeconds, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    daemonThreads(name));
+            this.name = name;
+            allowCoreThreadTimeOut(true);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            super.execute(command);
+            peakQueued.accumulateAndGet(getQueue().size(), Math::max);
+        }
+
+        Gauge gauge() {
+            return new Gauge(name,
+                    getPoolSize(),
+                    getActiveCount(),
+                    getQueue().size(),
+                    peakQueued.get(),
+                    getLargestPoolSize(),
+                    getCompletedTaskCount());
+        }
+
+        private static ThreadFactory daemonThreads(String name) {
+            var count = new AtomicInteger();
+            return r -> {
+                var thread = new Thread(r, "cj-%s-%d".formatted(name, count.incrementAndGet()));
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+}
@@ -9,7 +9,8 @@ public enum Options {
     level(s -> setProperty("quarkus.log.level", s)),
     capabilities(s -> setProperty("cj.capabilities", s)),
     version(s -> setProperty("cj.showVersion", "true")),
-    help(s -> setProperty("cj.showHelp", "true")),;
+    help(s -> setProperty("cj.showHelp", "true")),
+    follow(s -> setProperty("cj.logs.follow", "true")),;
     private static final Logger log = LoggerFactory.getLogger(Options.class);
     private final Consumer<String> parser;
 
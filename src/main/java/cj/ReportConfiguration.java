@@ -16,4 +16,8 @@ public interface ReportConfiguration {
     @WithDefault("cloud-janitor.html")
     String outputFile();
 
+    @WithName("export")
+    @WithDefault("false")
+    boolean export();
+
 }
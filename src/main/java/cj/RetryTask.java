@@ -1,14 +1,29 @@
 package cj;
 
 import cj.spi.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.enterprise.context.Dependent;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+import java.util.function.Predicate;
 
 @Dependent
 public class RetryTask extends BaseTask {
+    static final Random rand = new Random();
+    static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+    static final Logger logger = LoggerFactory.getLogger(RetryTask.class);
+
     @Override
     public void apply() {
         var task = getInput(CJInput.task, Task.class);
+        var deadline = inputAs(CJInput.retryUntil, Instant.class);
+        if (deadline.isPresent()) {
+            retryUntil(task, deadline.get());
+            return;
+        }
         try {
             info("Trying task {}", task);
             tasks().submitTask(task);
@@ -30,4 +45,44 @@ public class RetryTask extends BaseTask {
         }
 
     }
+
+    @SuppressWarnings("unchecked")
+    private void retryUntil(Task task, Instant deadline) {
+        Predicate<Throwable> retryOn = inputAs(CJInput.retryOn, Predicate.class)
+                .orElse(e -> true);
+        retryUntil(task.getName(), () -> tasks().submitTask(task), deadline, retryOn);
+    }
+
+    /**
+     * Runs the action with exponential backoff while it fails with errors accepted by
+     * retryOn, until it succeeds or the deadline passes.
+     */
+    public static void retryUntil(String name, Runnable action, Instant deadline, Predicate<Throwable> retryOn) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                action.run();
+                if (attempt > 1) logger.debug("{} succeeded after {} attempts", name, attempt);
+                return;
+            } catch (RuntimeException e) {
+                if (!retryOn.test(e)) throw e;
+                var delay = backoff(attempt);
+                if (Instant.now().plus(delay).isAfter(deadline)) {
+                    throw new TaskFailedException("%s did not succeed before %s (%d attempts): %s"
+                            .formatted(name, deadline, attempt, e.getMessage()));
+                }
+                logger.debug("Requeueing {} in {}ms after attempt {}: {}", name, delay.toMillis(), attempt, e.getMessage());
+                try {
+                    Thread.sleep(delay.toMillis());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(ie);
+                }
+            }
+        }
+    }
+
+    private static Duration backoff(int attempt) {
+        var ceiling = Math.min(MAX_BACKOFF.toMillis(), 1000L << Math.min(attempt - 1, 10));
+        return Duration.ofMillis(ceiling / 2 + rand.nextLong(ceiling / 2 + 1));
+    }
 }
@@ -70,7 +70,8 @@ public class Shell {
         checkArgument(stderr.isPresent(), "No stderr from shell task");
         var exitCode = shellTask.outputAs(ShellOutput.exitCode, Integer.class);
         checkArgument(exitCode.isPresent(), "No exit code from shell task");
-        return new ExecResult(exitCode.get(), stdout.get(), stderr.get());
+        var outputFile = shellTask.outputAs(ShellOutput.outputFile, Path.class);
+        return new ExecResult(exitCode.get(), stdout.get(), stderr.get(), outputFile.orElse(null));
     }
 
     public ShellTask shellTask(List<String> prompt) {
@@ -1,16 +1,33 @@
 package cj;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.function.Consumer;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Drains a stream through an NIO channel, handing each line, decoded as UTF-8, to the consumer.
+ * <p>
+ * Lines longer than MAX_LINE_BYTES are cut to their first MAX_LINE_BYTES; the rest of the line is read
+ * and dropped, so a consumer that writes lines to a file (as ShellTask does) writes them cut as well.
+ */
 public class StreamGobbler implements Runnable {
-    private final InputStream inputStream;
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final int MAX_LINE_BYTES = 64 * 1024;
+
+    private final ReadableByteChannel source;
     private final Consumer<String> consumer;
+    private final ByteArrayOutputStream partial = new ByteArrayOutputStream();
+    private String head;
 
     public StreamGobbler(InputStream inputStream, Consumer<String> consumer) {
-        this.inputStream = inputStream;
+        this.source = Channels.newChannel(inputStream);
         this.consumer = consumer;
     }
 
@@ -20,8 +37,57 @@ public class StreamGobbler implements Runnable {
 
     @Override
     public void run() {
-            new BufferedReader(new InputStreamReader(inputStream))
-                    .lines()
-                    .forEach(consumer);
+        var buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (source) {
+            while (source.read(buffer) >= 0) {
+                buffer.flip();
+                drain(buffer.array(), buffer.limit());
+                buffer.clear();
+            }
+            if (partial.size() > 0 || head != null) {
+                emit(buffer.array(), 0, 0);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void drain(byte[] bytes, int end) {
+        var start = 0;
+        for (int i = 0; i < end; i++) {
+            if (bytes[i] == '\n') {
+                emit(bytes, start, i);
+                start = i + 1;
+            }
+        }
+        if (head == null) {
+            partial.write(bytes, start, end - start);
+            if (partial.size() > MAX_LINE_BYTES) spill();
+        }
+    }
+
+    /**
+     * Keeps only the head of an overlong line, dropping the rest until its end.
+     */
+    private void spill() {
+        head = new String(partial.toByteArray(), 0, MAX_LINE_BYTES, UTF_8);
+        partial.reset();
+    }
+
+    private void emit(byte[] bytes, int from, int to) {
+        String line;
+        if (head != null) {
+            line = head;
+        } else if (partial.size() > 0) {
+            partial.write(bytes, from, to - from);
+            var joined = partial.toByteArray();
+            line = new String(joined, 0, Math.min(joined.length, MAX_LINE_BYTES), UTF_8);
+        } else {
+            line = new String(bytes, from, Math.min(to - from, MAX_LINE_BYTES), UTF_8);
+        }
+        head = null;
+        partial.reset();
+        if (line.endsWith("\r")) line = line.substring(0, line.length() - 1);
+        consumer.accept(line);
     }
-}
\ No newline at end of file
+}
@@ -4,4 +4,8 @@ public class TaskFailedException extends RuntimeException {
     public TaskFailedException(String message) {
         super(message);
     }
+
+    public TaskFailedException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -2,6 +2,7 @@ package cj;
 
 import cj.ocp.CapabilityNotFoundException;
 import cj.qute.Templates;
+import cj.reporting.Export;
 import cj.reporting.Reporting;
 import cj.spi.Task;
 import org.slf4j.Logger;
@@ -13,6 +14,7 @@ import javax.inject.Named;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,7 +35,13 @@ public class Tasks {
     @Inject
     Reporting reporting;
 
-    List<Task> history = new ArrayList<>();
+    @Inject
+    Export export;
+
+    @Inject
+    ManagedExecutors executors;
+
+    List<Task> history = Collections.synchronizedList(new ArrayList<>());
 
     String task;
 
@@ -61,8 +69,13 @@ public class Tasks {
 
     public void run(String[] args) {
         init();
-        repeat(args);
-        report();
+        try {
+            repeat(args);
+            report();
+            export.executors(executors.gauges());
+        } finally {
+            export.close();
+        }
     }
 
     private void init() {
@@ -183,13 +196,16 @@ public class Tasks {
             throw new RuntimeException(e);
         } finally {
             task.setEndTime(LocalDateTime.now());
+            export.action(task);
         }
     }
 
     // Reporting Support
     @SuppressWarnings("unused")
     public List<Task> getHistory() {
-        return new ArrayList<>(history);
+        synchronized (history) {
+            return new ArrayList<>(history);
+        }
     }
 
     // Utilities
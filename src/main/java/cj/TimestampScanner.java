@@ -0,0 +1,212 @@
+package cj;
+
+/**
+ * Finds the first timestamp in a line without regular expressions, formatters or allocation.
+ * <p>
+ * Date-times are looked for first, in any of these shapes:
+ * <ul>
+ *     <li>yyyyMMddHHmmss</li>
+ *     <li>ISO-8601 / RFC3339: yyyy-MM-dd'T'HH:mm:ss[.fraction][Z|+HH:mm|+HHmm], also with a space for 'T'</li>
+ *     <li>syslog: MMM dd HH:mm:ss, in the year of the base day</li>
+ * </ul>
+ * then a time of day with a fraction (HH:mm:ss.SSSSSS), taken on the base day.
+ * Times without an offset are UTC, as in {@link TimeUtils#toTimestamp}.
+ */
+public final class TimestampScanner {
+    public static final long NONE = Long.MIN_VALUE;
+    public static final long MS_PER_DAY = 86_400_000L;
+    static final String MONTHS = "JanFebMarAprMayJunJulAugSepOctNovDec";
+
+    private TimestampScanner() {
+    }
+
+    /**
+     * Epoch millis of the first timestamp in the line, or {@link #NONE}.
+     */
+    public static long scan(CharSequence s, long baseDayMillis) {
+        var n = s.length();
+        for (int i = 0; i < n; i++) {
+            var c = s.charAt(i);
+            if (isDigit(c)) {
+                if (i > 0 && isDigit(s.charAt(i - 1))) continue;
+                var t = isoDateTime(s, i, n);
+                if (t == NONE) t = compactDateTime(s, i, n);
+                if (t != NONE) return t;
+            } else if (c >= 'A' && c <= 'S' && (i == 0 || !Character.isLetter(s.charAt(i - 1)))) {
+                var t = syslogDateTime(s, i, n, baseDayMillis);
+                if (t != NONE) return t;
+            }
+        }
+        for (int i = 0; i + 10 <= n; i++) {
+            if (!isDigit(s.charAt(i)) || (i > 0 && isDigit(s.charAt(i - 1)))) continue;
+            var seconds = secondOfDay(s, i, n);
+            if (seconds < 0) continue;
+            var end = fractionEnd(s, i + 8, n);
+            if (end > i + 9) return baseDayMillis + seconds * 1000L + fractionMillis(s, i + 9, end);
+        }
+        return NONE;
+    }
+
+    /**
+     * yyyy-MM-dd[T ]HH:mm:ss[.fraction][offset]
+     */
+    static long isoDateTime(CharSequence s, int i, int n) {
+        if (i + 19 > n) return NONE;
+        var year = digits(s, i, 4);
+        var month = s.charAt(i + 4) == '-' ? digits(s, i + 5, 2) : -1;
+        var day = s.charAt(i + 7) == '-' ? digits(s, i + 8, 2) : -1;
+        var sep = s.charAt(i + 10);
+        if (year < 0 || !isDate(year, month, day) || (sep != 'T' && sep != 't' && sep != ' ')) return NONE;
+        var seconds = secondOfDay(s, i + 11, n);
+        if (seconds < 0) return NONE;
+        var end = fractionEnd(s, i + 19, n);
+        var millis = end > i + 20 ? fractionMillis(s, i + 20, end) : 0;
+        var offset = offsetMillis(s, end, n);
+        return daysFromCivil(year, month, day) * MS_PER_DAY + seconds * 1000L + millis - offset;
+    }
+
+    /**
+     * yyyyMMddHHmmss
+     */
+    static long compactDateTime(CharSequence s, int i, int n) {
+        if (i + 14 > n) return NONE;
+        var year = digits(s, i, 4);
+        var month = digits(s, i + 4, 2);
+        var day = digits(s, i + 6, 2);
+        var hour = digits(s, i + 8, 2);
+        var minute = digits(s, i + 10, 2);
+        var second = digits(s, i + 12, 2);
+        if (year < 0 || !isDate(year, month, day) || !isTime(hour, minute, second)) return NONE;
+        return daysFromCivil(year, month, day) * MS_PER_DAY + (hour * 3600L + minute * 60L + second) * 1000L;
+    }
+
+    /**
+     * MMM dd HH:mm:ss or MMM  d HH:mm:ss
+     */
+    static long syslogDateTime(CharSequence s, int i, int n, long baseDayMillis) {
+        if (i + 15 > n || s.charAt(i + 3) != ' ') return NONE;
+        var month = month(s, i);
+        if (month < 0) return NONE;
+        var d1 = s.charAt(i + 4);
+        var day = d1 == ' ' ? digit(s.charAt(i + 5)) : digits(s, i + 4, 2);
+        if (s.charAt(i + 6) != ' ') return NONE;
+        var year = yearFromDays(Math.floorDiv(baseDayMillis, MS_PER_DAY));
+        if (!isDate(year, month, day)) return NONE;
+        var seconds = secondOfDay(s, i + 7, n);
+        if (seconds < 0) return NONE;
+        return daysFromCivil(year, month, day) * MS_PER_DAY + seconds * 1000L;
+    }
+
+    /**
+     * HH:mm:ss as seconds of the day, or -1.
+     */
+    static int secondOfDay(CharSequence s, int i, int n) {
+        if (i + 8 > n || s.charAt(i + 2) != ':' || s.charAt(i + 5) != ':') return -1;
+        var hour = digits(s, i, 2);
+        var minute = digits(s, i + 3, 2);
+        var second = digits(s, i + 6, 2);
+        if (!isTime(hour, minute, second)) return -1;
+        return hour * 3600 + minute * 60 + second;
+    }
+
+    /**
+     * Index after ".digits" or ",digits" at i, or i if there is no fraction.
+     */
+    static int fractionEnd(CharSequence s, int i, int n) {
+        if (i >= n || (s.charAt(i) != '.' && s.charAt(i) != ',')) return i;
+        var j = i + 1;
+        while (j < n && isDigit(s.charAt(j))) j++;
+        return j == i + 1 ? i : j;
+    }
+
+    static int fractionMillis(CharSequence s, int from, int end) {
+        var millis = 0;
+        for (int k = 0; k < 3; k++) {
+            millis = millis * 10 + (from + k < end ? s.charAt(from + k) - '0' : 0);
+        }
+        return millis;
+    }
+
+    /**
+     * Z, +HH:mm, +HHmm or +HH as millis east of UTC; 0 when absent.
+     */
+    static long offsetMillis(CharSequence s, int i, int n) {
+        if (i >= n) return 0;
+        var c = s.charAt(i);
+        if (c != '+' && c != '-') return 0;
+        var hours = i + 3 <= n ? digits(s, i + 1, 2) : -1;
+        if (hours < 0 || hours > 18) return 0;
+        var j = i + 3;
+        if (j < n && s.charAt(j) == ':') j++;
+        var minutes = j + 2 <= n ? digits(s, j, 2) : -1;
+        var offset = (hours * 60L + Math.max(0, minutes)) * 60_000L;
+        return c == '-' ? -offset : offset;
+    }
+
+    static int month(CharSequence s, int i) {
+        for (int m = 0; m < 12; m++) {
+            var k = m * 3;
+            if (s.charAt(i) == MONTHS.charAt(k)
+                    && s.charAt(i + 1) == MONTHS.charAt(k + 1)
+                    && s.charAt(i + 2) == MONTHS.charAt(k + 2)) return m + 1;
+        }
+        return -1;
+    }
+
+    static int digits(CharSequence s, int i, int count) {
+        var value = 0;
+        for (int k = 0; k < count; k++) {
+            var d = digit(s.charAt(i + k));
+            if (d < 0) return -1;
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    static int digit(char c) {
+        return isDigit(c) ? c - '0' : -1;
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    static boolean isDate(int year, int month, int day) {
+        return month >= 1 && month <= 12 && day >= 1 && day <= daysInMonth(year, month);
+    }
+
+    static boolean isTime(int hour, int minute, int second) {
+        return hour >= 0 && hour < 24 && minute >= 0 && minute < 60 && second >= 0 && second < 60;
+    }
+
+    static int daysInMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    /**
+     * Days since 1970-01-01 of a proleptic Gregorian date.
+     */
+    static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        var era = Math.floorDiv(y, 400);
+        var yoe = y - era * 400;
+        var doy = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        var doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    static int yearFromDays(long days) {
+        var z = days + 719468;
+        var era = Math.floorDiv(z, 146097);
+        var doe = z - era * 146097;
+        var yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        var doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        var mp = (5 * doy + 2) / 153;
+        var month = mp < 10 ? mp + 3 : mp - 9;
+        return (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+    }
+}
@@ -0,0 +1,135 @@
+package cj.aws;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Coalesces single-resource mutations into as few API calls as possible.
+ * <p>
+ * Resources are sent in chunks of up to {@code maxSize}. A call may report individual
+ * failures by returning their ids (as DeleteVpcEndpoints does with "unsuccessful").
+ * When a call fails as a whole because of some of its resources (as TerminateInstances does
+ * for a single unknown id), the resources named in the error are failed and the rest resent;
+ * if none is named, the chunk is split in halves and retried, down to the resources that
+ * actually fail. Any other error, such as a denied operation, fails the whole chunk at once.
+ */
+public class AWSBatch<T> {
+    static final Logger log = LoggerFactory.getLogger(AWSBatch.class);
+
+    private final int maxSize;
+    private final Function<T, String> idOf;
+    private final Function<List<T>, Collection<String>> call;
+
+    private AWSBatch(int maxSize, Function<T, String> idOf, Function<List<T>, Collection<String>> call) {
+        if (maxSize < 1) throw new IllegalArgumentException("Batch size must be positive: " + maxSize);
+        this.maxSize = maxSize;
+        this.idOf = idOf;
+        this.call = call;
+    }
+
+    /**
+     * @param call issues the request for a chunk and returns the ids it reports as unsuccessful
+     */
+    public static <T> AWSBatch<T> of(int maxSize,
+                                     Function<T, String> idOf,
+                                     Function<List<T>, Collection<String>> call) {
+        return new AWSBatch<>(maxSize, idOf, call);
+    }
+
+    public Result<T> apply(List<T> resources) {
+        var result = new Result<T>(new ArrayList<>(), new LinkedHashMap<>(), new AtomicReference<>(), new AtomicInteger());
+        for (int i = 0; i < resources.size(); i += maxSize) {
+            var chunk = resources.subList(i, Math.min(i + maxSize, resources.size()));
+            send(List.copyOf(chunk), result);
+        }
+        log.debug("Batched {} resources in {} calls, {} failed",
+                resources.size(), result.calls().get(), result.failed().size());
+        return result;
+    }
+
+    private void send(List<T> chunk, Result<T> result) {
+        if (chunk.isEmpty()) return;
+        result.calls().incrementAndGet();
+        try {
+            var unsuccessful = Set.copyOf(call.apply(chunk));
+            for (var resource : chunk) {
+                var id = idOf.apply(resource);
+                if (unsuccessful.contains(id)) {
+                    result.failed().put(resource, "Reported as unsuccessful");
+                } else {
+                    result.succeeded().add(resource);
+                }
+            }
+        } catch (AwsServiceException e) {
+            if (chunk.size() > 1 && e.isThrottlingException()) throw e;
+            if (chunk.size() == 1 || !AWSErrors.isResourceError(e)) {
+                fail(chunk, e, result);
+                return;
+            }
+            var named = chunk.stream()
+                    .filter(resource -> names(e.getMessage(), idOf.apply(resource)))
+                    .toList();
+            if (!named.isEmpty()) {
+                log.debug("Batch of {} failed for {} named resources ({}), resending the rest",
+                        chunk.size(), named.size(), e.getMessage());
+                fail(named, e, result);
+                send(chunk.stream().filter(resource -> !named.contains(resource)).toList(), result);
+                return;
+            }
+            log.debug("Batch of {} failed ({}), splitting", chunk.size(), e.getMessage());
+            var half = chunk.size() / 2;
+            send(chunk.subList(0, half), result);
+            send(chunk.subList(half, chunk.size()), result);
+        }
+    }
+
+    private void fail(List<T> resources, AwsServiceException e, Result<T> result) {
+        var reason = e.awsErrorDetails() != null
+                ? e.awsErrorDetails().errorCode() + ": " + e.awsErrorDetails().errorMessage()
+                : e.getMessage();
+        resources.forEach(resource -> result.failed().put(resource, reason));
+        result.cause().compareAndSet(null, e);
+    }
+
+    /**
+     * Whether the message names the id as a whole word, so that i-4 is not found in i-42.
+     */
+    static boolean names(String message, String id) {
+        if (message == null || id == null || id.isEmpty()) return false;
+        for (int at = message.indexOf(id); at >= 0; at = message.indexOf(id, at + 1)) {
+            var end = at + id.length();
+            if ((at == 0 || !isIdChar(message.charAt(at - 1)))
+                    && (end == message.length() || !isIdChar(message.charAt(end)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIdChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '-' || c == '_';
+    }
+
+    /**
+     * @param cause the first error a single resource failed with, kept so that callers can classify the failure
+     */
+    public record Result<T>(List<T> succeeded,
+                            Map<T, String> failed,
+                            AtomicReference<AwsServiceException> cause,
+                            AtomicInteger calls) {
+        public boolean isSuccess() {
+            return failed.isEmpty();
+        }
+    }
+}
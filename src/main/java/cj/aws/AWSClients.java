@@ -21,9 +21,26 @@ import software.amazon.awssdk.services.sts.StsClient;
 import software.amazon.awssdk.services.transcribe.TranscribeClient;
 import software.amazon.awssdk.services.translate.TranslateClient;
 import software.amazon.awssdk.transfer.s3.S3TransferManager;
+import software.amazon.awssdk.transfer.s3.model.Copy;
+import software.amazon.awssdk.transfer.s3.model.CopyRequest;
+import software.amazon.awssdk.transfer.s3.model.DirectoryDownload;
+import software.amazon.awssdk.transfer.s3.model.DirectoryUpload;
+import software.amazon.awssdk.transfer.s3.model.Download;
+import software.amazon.awssdk.transfer.s3.model.DownloadDirectoryRequest;
+import software.amazon.awssdk.transfer.s3.model.DownloadFileRequest;
+import software.amazon.awssdk.transfer.s3.model.DownloadRequest;
+import software.amazon.awssdk.transfer.s3.model.FileDownload;
+import software.amazon.awssdk.transfer.s3.model.FileUpload;
+import software.amazon.awssdk.transfer.s3.model.ResumableFileDownload;
+import software.amazon.awssdk.transfer.s3.model.ResumableFileUpload;
+import software.amazon.awssdk.transfer.s3.model.Upload;
+import software.amazon.awssdk.transfer.s3.model.UploadDirectoryRequest;
+import software.amazon.awssdk.transfer.s3.model.UploadFileRequest;
+import software.amazon.awssdk.transfer.s3.model.UploadRequest;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.net.URI;
 
 @ApplicationScoped
 public class AWSClients {
@@ -82,20 +99,43 @@ public class AWSClients {
                 .build();
     }
 
+    /**
+     * A transfer manager over its own async client; closing it closes the client too,
+     * which the SDK leaves open when the client is passed in.
+     */
     public S3TransferManager s3tm(){
-        @SuppressWarnings("redundant")
+        var client = s3async();
         var tx = S3TransferManager
                 .builder()
-                .s3Client(s3async())
+                .s3Client(client)
                 .build();
-        return tx;
+        return new ClientClosingTransferManager(tx, client);
     }
 
     private S3AsyncClient s3async() {
-        return S3AsyncClient.builder()
+        if (cfg.s3CrtEnabled()) return s3crt();
+        var builder = S3AsyncClient.builder()
                 .region(region())
                 .credentialsProvider(getCredentialsProvider())
-                .build();
+                .forcePathStyle(cfg.s3PathStyle());
+        cfg.s3Endpoint().map(URI::create).ifPresent(builder::endpointOverride);
+        return builder.build();
+    }
+
+    /**
+     * Native (CRT) client, which splits transfers into parts and runs them on its own
+     * event loop, sized from the target throughput rather than from a thread pool.
+     */
+    private S3AsyncClient s3crt() {
+        var builder = S3AsyncClient.crtBuilder()
+                .region(region())
+                .credentialsProvider(getCredentialsProvider())
+                .targetThroughputInGbps(cfg.s3CrtTargetThroughputGbps())
+                .minimumPartSizeInBytes(cfg.s3CrtMinimumPartSizeMb() * 1024L * 1024L);
+        cfg.s3CrtMaxConcurrency().ifPresent(builder::maxConcurrency);
+        cfg.s3Endpoint().map(URI::create).ifPresent(builder::endpointOverride);
+        log.debug("Using CRT S3 client targeting {} Gbps", cfg.s3CrtTargetThroughputGbps());
+        return builder.build();
     }
 
     public S3Client s3(){
@@ -129,12 +169,12 @@ public class AWSClients {
     }
 
     public S3Client s3(Region region){
-        @SuppressWarnings("redundant")
-        var s3 = S3Client.builder()
+        var builder = S3Client.builder()
                 .region(region)
                 .credentialsProvider(getCredentialsProvider())
-                .build();
-        return s3;
+                .forcePathStyle(cfg.s3PathStyle());
+        cfg.s3Endpoint().map(URI::create).ifPresent(builder::endpointOverride);
+        return builder.build();
     }
 
     public Route53Client route53() {
@@ -229,4 +269,61 @@ public class AWSClients {
                 .build();
         return cw;
     }
+
+    private record ClientClosingTransferManager(S3TransferManager tx, S3AsyncClient client)
+            implements S3TransferManager {
+        @Override
+        public FileDownload downloadFile(DownloadFileRequest request) {
+            return tx.downloadFile(request);
+        }
+
+        @Override
+        public FileDownload resumeDownloadFile(ResumableFileDownload download) {
+            return tx.resumeDownloadFile(download);
+        }
+
+        @Override
+        public <ResultT> Download<ResultT> download(DownloadRequest<ResultT> request) {
+            return tx.download(request);
+        }
+
+        @Override
+        public FileUpload uploadFile(UploadFileRequest request) {
+            return tx.uploadFile(request);
+        }
+
+        @Override
+        public FileUpload resumeUploadFile(ResumableFileUpload upload) {
+            return tx.resumeUploadFile(upload);
+        }
+
+        @Override
+        public Upload upload(UploadRequest request) {
+            return tx.upload(request);
+        }
+
+        @Override
+        public DirectoryUpload uploadDirectory(UploadDirectoryRequest request) {
+            return tx.uploadDirectory(request);
+        }
+
+        @Override
+        public DirectoryDownload downloadDirectory(DownloadDirectoryRequest request) {
+            return tx.downloadDirectory(request);
+        }
+
+        @Override
+        public Copy copy(CopyRequest request) {
+            return tx.copy(request);
+        }
+
+        @Override
+        public void close() {
+            try {
+                tx.close();
+            } finally {
+                client.close();
+            }
+        }
+    }
 }
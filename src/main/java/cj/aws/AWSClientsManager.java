@@ -4,15 +4,18 @@ import cj.*;
 import cj.aws.sts.AWSLoadIdentitiesTask;
 import cj.aws.sts.DefaultIdentity;
 import org.slf4j.Logger;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @ApplicationScoped
 public class AWSClientsManager {
@@ -40,10 +43,11 @@ public class AWSClientsManager {
     private AWSIdentity defaultIdentity;
 
     private Region defaultRegion;
-    private final Map<AWSIdentity, AWSIdentityInfo> infoMap = new HashMap<>();
+    private final Map<AWSIdentity, AWSIdentityInfo> infoMap = Collections.synchronizedMap(new HashMap<>());
+    private final Map<AWSIdentity, AwsCredentialsProvider> credentials = new ConcurrentHashMap<>();
 
 
-    public AWSClients of(AWSIdentity identity, Region region) {
+    public synchronized AWSClients of(AWSIdentity identity, Region region) {
         if (region == null){
             region = defaultRegion(config.aws());
             log.warn("Requested AWS clients without region. Using default region {}", region);
@@ -130,6 +134,14 @@ public class AWSClientsManager {
         this.defaultIdentity = identity;
     }
 
+    /**
+     * Credentials of the identity, resolved once and refreshed by the provider itself.
+     */
+    public AwsCredentialsProvider credentials(AWSIdentity identity) {
+        return credentials.computeIfAbsent(identity,
+                id -> id.toCredentialsProvider(of(DefaultIdentity.of(), defaultRegion()).sts()));
+    }
+
     public AWSIdentityInfo putInfo(AWSIdentity id, String accountId, String accountAlias, String userARN) {
         return putInfo(id, AWSIdentityInfo.of(userARN, accountId, accountAlias));
     }
@@ -2,8 +2,10 @@ package cj.aws;
 
 import io.quarkus.runtime.annotations.StaticInitSafe;
 import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
 import io.smallrye.config.WithName;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,9 +28,107 @@ public interface AWSConfiguration {
     @WithName("filter.prefix")
     Optional<String> filterPrefix();
 
+    @WithName("filter.prefixes")
+    Optional<List<String>> filterPrefixes();
+
+    @WithName("filter.expression")
+    Optional<String> filterExpression();
+
+    default List<String> filterPrefixList(){
+        var prefixes = new ArrayList<String>();
+        filterPrefix().ifPresent(prefixes::add);
+        filterPrefixes().ifPresent(prefixes::addAll);
+        return prefixes;
+    }
+
     @WithName("regions")
     Optional<List<String>> regions();
 
+    @WithName("maxConcurrency")
+    @WithDefault("8")
+    int maxConcurrency();
+
+    @WithName("throttling.maxRetries")
+    @WithDefault("8")
+    int throttlingMaxRetries();
+
+    @WithName("teardown.optimistic")
+    @WithDefault("false")
+    boolean teardownOptimistic();
+
+    @WithName("teardown.deadlineMinutes")
+    @WithDefault("30")
+    long teardownDeadlineMinutes();
+
+    @WithName("waiters.pollSeconds")
+    @WithDefault("15")
+    long waitersPollSeconds();
+
+    @WithName("s3.maxInflightDeletes")
+    @WithDefault("32")
+    int s3MaxInflightDeletes();
+
+    @WithName("s3.maxInflightUploads")
+    @WithDefault("8")
+    int s3MaxInflightUploads();
+
+    @WithName("s3.endpoint")
+    Optional<String> s3Endpoint();
+
+    @WithName("s3.pathStyle")
+    @WithDefault("false")
+    boolean s3PathStyle();
+
+    @WithName("s3.crt.enabled")
+    @WithDefault("false")
+    boolean s3CrtEnabled();
+
+    @WithName("s3.crt.targetThroughputGbps")
+    @WithDefault("10.0")
+    double s3CrtTargetThroughputGbps();
+
+    @WithName("s3.crt.minimumPartSizeMb")
+    @WithDefault("8")
+    long s3CrtMinimumPartSizeMb();
+
+    @WithName("s3.crt.maxConcurrency")
+    Optional<Integer> s3CrtMaxConcurrency();
+
+    @WithName("sync.direction")
+    @WithDefault("upload")
+    String syncDirection();
+
+    @WithName("sync.localPath")
+    Optional<String> syncLocalPath();
+
+    @WithName("sync.bucket")
+    Optional<String> syncBucket();
+
+    @WithName("sync.prefix")
+    Optional<String> syncPrefix();
+
+    @WithName("sync.deleteExtraneous")
+    @WithDefault("false")
+    boolean syncDeleteExtraneous();
+
+    @WithName("s3.copy.source")
+    Optional<String> s3CopySource();
+
+    @WithName("s3.copy.target")
+    Optional<String> s3CopyTarget();
+
+    @WithName("s3.copy.diff")
+    @WithDefault("true")
+    boolean s3CopyDiff();
+
+    @WithName("s3.copy.multipartThresholdMb")
+    @WithDefault("512")
+    long s3CopyMultipartThresholdMb();
+
+    @WithName("s3.copy.partSizeMb")
+    @WithDefault("128")
+    long s3CopyPartSizeMb();
+
     @WithName("roles")
     Optional<List<AWSRoleConfig>> roles();
 }
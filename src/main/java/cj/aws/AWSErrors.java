@@ -0,0 +1,67 @@
+package cj.aws;
+
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+
+import java.util.Set;
+
+/**
+ * Classifies AWS errors that go away on their own once other resources are released,
+ * and errors caused by particular resources of a request rather than by the request as a whole.
+ */
+public class AWSErrors {
+    static final Set<String> DEPENDENCY_CODES = Set.of(
+            "DependencyViolation",
+            "InvalidParameterValue",
+            "ResourceInUse",
+            "ResourceInUseException",
+            "IncorrectState",
+            "InvalidIPAddress.InUse");
+
+    static final Set<String> RESOURCE_CODES = Set.of(
+            "InvalidChangeBatch",
+            "OperationNotPermitted");
+
+    static final Set<String> RESOURCE_CODE_PREFIXES = Set.of(
+            "InvalidInstanceID.",
+            "InvalidVpcEndpointId.",
+            "InvalidSecurityGroupRuleId.",
+            "InvalidGroup.",
+            "InvalidPermission.");
+
+    public static boolean isDependencyError(Throwable error) {
+        for (var e = error; e != null; e = e.getCause()) {
+            if (e instanceof AwsServiceException ase
+                    && ase.awsErrorDetails() != null
+                    && isDependencyCode(ase.awsErrorDetails().errorCode())) {
+                return true;
+            }
+            var message = e.getMessage();
+            if (message != null && (message.contains("DependencyViolation")
+                    || message.contains("has a dependent object")
+                    || message.contains("in use"))) {
+                return true;
+            }
+            if (e.getCause() == e) break;
+        }
+        return false;
+    }
+
+    static boolean isDependencyCode(String code) {
+        if (code == null) return false;
+        return DEPENDENCY_CODES.contains(code) || code.endsWith(".InUse");
+    }
+
+    /**
+     * Whether the request failed because of some of the resources it names, such as an unknown
+     * or malformed id, so that resending without them can succeed.
+     */
+    public static boolean isResourceError(AwsServiceException error) {
+        var details = error.awsErrorDetails();
+        var code = details == null ? null : details.errorCode();
+        if (code == null) return false;
+        return RESOURCE_CODES.contains(code)
+                || code.endsWith(".NotFound")
+                || code.endsWith(".Malformed")
+                || RESOURCE_CODE_PREFIXES.stream().anyMatch(code::startsWith);
+    }
+}
@@ -1,17 +1,64 @@
 package cj.aws;
 
+import cj.CloudResourceRecord;
+import cj.filter.ResourceFilter;
+import cj.reporting.Export;
+
+import javax.inject.Inject;
+import java.util.List;
+import java.util.function.Function;
+
 public abstract class AWSFilter extends AWSTask {
+    @Inject
+    AWSFilters filters;
+
+    @Inject
+    Export export;
 
     protected boolean matchName(String name){
-        var prefix = aws().config().filterPrefix();
-        if (prefix.isEmpty()) return true;
-        if (name == null) return false;
-        return name.startsWith(prefix.get());
+        return filters.matchName(name);
     }
 
-
     protected boolean hasFilterPrefix() {
-        return aws().config().filterPrefix().isPresent();
+        return filters.hasNamePrefix();
     }
 
+    /**
+     * The configured filter (name prefixes and cj.aws.filter.expression), compiled once per execution.
+     */
+    protected ResourceFilter configuredFilter() {
+        return filters.resourceFilter();
+    }
+
+    /**
+     * The configured filter restricted to the target VPC, if any.
+     */
+    protected ResourceFilter resourceFilter() {
+        return vpcFilter().and(configuredFilter());
+    }
+
+    protected ResourceFilter vpcFilter() {
+        var vpcId = inputString(AWSInput.targetVPCId);
+        if (vpcId.isEmpty()) return ResourceFilter.ALL;
+        return new ResourceFilter.Equals(ResourceFilter.Field.vpc, vpcId.get(), false);
+    }
+
+    protected <T> List<T> matching(List<T> resources,
+                                 Function<T, CloudResourceRecord> toRecord,
+                                 ResourceFilter filter) {
+        var placement = export.isEnabled() ? getPlacement() : null;
+        return resources.stream().filter(resource -> {
+            var record = toRecord.apply(resource);
+            var match = filter.test(record);
+            trace("Found {} {}", matchMark(match), resource);
+            if (placement != null) {
+                export.inventory(record.withPlacement(placement).withMatch(match));
+            }
+            return match;
+        }).toList();
+    }
+
+    protected <T> List<T> matching(List<T> resources, Function<T, CloudResourceRecord> toRecord) {
+        return matching(resources, toRecord, resourceFilter());
+    }
 }
@@ -0,0 +1,59 @@
+package cj.aws;
+
+import cj.filter.FilterExpression;
+import cj.filter.PrefixTrie;
+import cj.filter.ResourceFilter;
+import org.slf4j.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import static cj.filter.ResourceFilter.ALL;
+
+/**
+ * Compiles the configured resource filter (cj.aws.filter.*) once per execution.
+ */
+@ApplicationScoped
+public class AWSFilters {
+    @Inject
+    Logger log;
+
+    @Inject
+    AWSConfiguration config;
+
+    private ResourceFilter resourceFilter;
+    private PrefixTrie namePrefixes;
+
+    public synchronized ResourceFilter resourceFilter() {
+        if (resourceFilter == null) {
+            var prefixes = namePrefixes();
+            var filter = prefixes.isEmpty()
+                    ? ALL
+                    : new ResourceFilter.Prefix(ResourceFilter.Field.name, prefixes);
+            var expression = config.filterExpression();
+            if (expression.isPresent()) {
+                filter = filter.and(FilterExpression.compile(expression.get()));
+            }
+            log.debug("Compiled resource filter {}", filter);
+            resourceFilter = filter;
+        }
+        return resourceFilter;
+    }
+
+    public synchronized PrefixTrie namePrefixes() {
+        if (namePrefixes == null) {
+            namePrefixes = PrefixTrie.of(config.filterPrefixList());
+        }
+        return namePrefixes;
+    }
+
+    public boolean matchName(String name) {
+        var prefixes = namePrefixes();
+        if (prefixes.isEmpty()) return true;
+        return prefixes.matchesAnyPrefix(name);
+    }
+
+    public boolean hasNamePrefix() {
+        return !namePrefixes().isEmpty();
+    }
+}
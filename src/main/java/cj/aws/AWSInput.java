@@ -12,17 +12,20 @@ public enum AWSInput implements Input {
     targetNetworkInterfaceId,
     targetNetworkInterface,
     resourceRecordSet,
+    hostedZoneId,
     targetRouteTable,
     targetTargetGroup,
     targetVPCEndpoint,
     address,
     targetBucketName,
+    sourceBucketName,
     targetRegion,
     identity,
     targetInstanceId,
     awsClients,
     targetAddress,
     s3Prefix,
+    s3Force,
     targetLanguages,
     sourceLanguage,
     contentType, bucketPolicy, regions, accountId, securityGroupRule
@@ -0,0 +1,106 @@
+package cj.aws;
+
+import cj.CloudResourceRecord;
+import software.amazon.awssdk.services.ec2.model.*;
+import software.amazon.awssdk.services.elasticloadbalancing.model.LoadBalancerDescription;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.LoadBalancer;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.TargetGroup;
+import software.amazon.awssdk.services.route53.model.ResourceRecordSet;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static cj.CloudResourceType.aws.*;
+
+/**
+ * Adapts AWS SDK models to {@link CloudResourceRecord}, so that filters and reports
+ * treat every resource type the same way.
+ */
+public class AWSResources {
+    static final String NAME_TAG = "Name";
+
+    public static CloudResourceRecord of(Instance r) {
+        var state = r.state() == null ? null : r.state().nameAsString();
+        var tags = tags(r.tags());
+        return CloudResourceRecord.of(instance, r.instanceId(), tags.get(NAME_TAG), state, r.vpcId(), r.launchTime(), tags);
+    }
+
+    public static CloudResourceRecord of(NetworkInterface r) {
+        var tags = tags(r.tagSet());
+        return CloudResourceRecord.of(networkInterface, r.networkInterfaceId(), tags.get(NAME_TAG), r.statusAsString(), r.vpcId(), null, tags);
+    }
+
+    public static CloudResourceRecord of(Address r) {
+        var tags = tags(r.tags());
+        return CloudResourceRecord.of(address, r.allocationId(), tags.get(NAME_TAG), null, null, null, tags);
+    }
+
+    public static CloudResourceRecord of(InternetGateway r) {
+        var tags = tags(r.tags());
+        var vpcId = r.attachments().stream()
+                .map(InternetGatewayAttachment::vpcId)
+                .findFirst()
+                .orElse(null);
+        return CloudResourceRecord.of(internetGateway, r.internetGatewayId(), tags.get(NAME_TAG), null, vpcId, null, tags);
+    }
+
+    public static CloudResourceRecord of(NatGateway r) {
+        var tags = tags(r.tags());
+        return CloudResourceRecord.of(natGateway, r.natGatewayId(), tags.get(NAME_TAG), r.stateAsString(), r.vpcId(), r.createTime(), tags);
+    }
+
+    public static CloudResourceRecord of(RouteTable r) {
+        var tags = tags(r.tags());
+        return CloudResourceRecord.of(routeTable, r.routeTableId(), tags.get(NAME_TAG), null, r.vpcId(), null, tags);
+    }
+
+    public static CloudResourceRecord of(SecurityGroup r) {
+        var tags = tags(r.tags());
+        var name = tags.getOrDefault(NAME_TAG, r.groupName());
+        return CloudResourceRecord.of(securityGroup, r.groupId(), name, null, r.vpcId(), null, tags);
+    }
+
+    public static CloudResourceRecord of(Subnet r) {
+        var tags = tags(r.tags());
+        return CloudResourceRecord.of(subnet, r.subnetId(), tags.get(NAME_TAG), r.stateAsString(), r.vpcId(), null, tags);
+    }
+
+    public static CloudResourceRecord of(Vpc r) {
+        var tags = tags(r.tags());
+        return CloudResourceRecord.of(vpc, r.vpcId(), tags.get(NAME_TAG), r.stateAsString(), r.vpcId(), null, tags);
+    }
+
+    public static CloudResourceRecord of(VpcEndpoint r) {
+        var tags = tags(r.tags());
+        return CloudResourceRecord.of(vpcEndpoint, r.vpcEndpointId(), tags.get(NAME_TAG), r.stateAsString(), r.vpcId(), r.creationTimestamp(), tags);
+    }
+
+    public static CloudResourceRecord of(ResourceRecordSet r) {
+        var name = r.name();
+        if (name != null && name.endsWith(".")) name = name.substring(0, name.length() - 1);
+        return CloudResourceRecord.of(record, name + "/" + r.typeAsString(), name, null, null, null, Map.of());
+    }
+
+    public static CloudResourceRecord of(TargetGroup r) {
+        return CloudResourceRecord.of(targetGroup, r.targetGroupArn(), r.targetGroupName(), null, r.vpcId(), null, Map.of());
+    }
+
+    public static CloudResourceRecord of(LoadBalancer r) {
+        var state = r.state() == null ? null : r.state().codeAsString();
+        return CloudResourceRecord.of(loadBalancer, r.loadBalancerArn(), r.loadBalancerName(), state, r.vpcId(), r.createdTime(), Map.of());
+    }
+
+    public static CloudResourceRecord of(LoadBalancerDescription r) {
+        return CloudResourceRecord.of(classicLoadBalancer, r.loadBalancerName(), r.loadBalancerName(), null, r.vpcId(), r.createdTime(), Map.of());
+    }
+
+    static Map<String, String> tags(List<Tag> tags) {
+        if (tags == null || tags.isEmpty()) return Map.of();
+        var result = new HashMap<String, String>(tags.size() * 2);
+        for (var tag : tags) {
+            result.putIfAbsent(tag.key(), tag.value());
+        }
+        return result;
+    }
+}
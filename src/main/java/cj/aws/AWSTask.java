@@ -2,26 +2,30 @@ package cj.aws;
 
 import cj.BaseTask;
 import cj.aws.sts.AWSLoadIdentitiesTask;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.ec2.model.Filter;
 
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Callable;
+import java.util.function.Supplier;
 
 import static cj.aws.AWSInput.identity;
 import static cj.aws.AWSOutput.Identities;
 import static com.google.common.base.Preconditions.checkArgument;
-import static org.awaitility.Awaitility.await;
 
 public abstract class AWSTask
         extends BaseTask {
     static final Random rand = new Random();
     @Inject
     AWSClientsManager awsManager;
+    @Inject
+    AWSWaiters waiters;
     protected AWSClients aws() {
         return awsManager.of(identity(), region());
     }
@@ -61,6 +65,10 @@ public abstract class AWSTask
         return Filter.builder().name(filterName).values(filterValue).build();
     }
 
+    protected Filter filter(String filterName, Collection<String> filterValues) {
+        return Filter.builder().name(filterName).values(filterValues).build();
+    }
+
     @Override
     public String getContextString() {
         return String.join(" - ", getContext());
@@ -88,6 +96,33 @@ public abstract class AWSTask
         return region.toString();
     }
 
+    /**
+     * Retries the call with exponential backoff and jitter while AWS reports throttling.
+     */
+    protected <T> T throttled(Supplier<T> call) {
+        var maxRetries = config().aws().throttlingMaxRetries();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return call.get();
+            } catch (AwsServiceException e) {
+                if (!e.isThrottlingException() || attempt >= maxRetries) throw e;
+                var ceiling = Math.min(20_000L, 100L << attempt);
+                var sleep = ceiling / 2 + rand.nextLong(ceiling / 2 + 1);
+                debug("Throttled ({}), retrying in {}ms", e.getMessage(), sleep);
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw fail(ie);
+                }
+            }
+        }
+    }
+
+    protected int maxConcurrency() {
+        return config().aws().maxConcurrency();
+    }
+
     protected Duration getPollInterval() {
         return getPollInterval(30.00);
     }
@@ -117,15 +152,15 @@ public abstract class AWSTask
     }
 
     protected void awaitUntil(Callable<Boolean> condition) {
-        await().atMost(getAtMost())
-                .pollInterval(getPollInterval())
-                .until(condition);
+        waiters.until(condition, getAtMost()).join();
     }
 
     protected void awaitUntilLong(Callable<Boolean> condition) {
-        await().atMost(getAtMostLong())
-                .pollInterval(getPollIntervalLong())
-                .until(condition);
+        waiters.until(condition, getAtMostLong()).join();
+    }
+
+    protected AWSWaiters waiters() {
+        return waiters;
     }
 
     @Inject
@@ -146,6 +181,11 @@ public abstract class AWSTask
         return region != null ? region.toString() : "";
     }
 
+    @Override
+    public String getPlacement() {
+        return "account=%s/region=%s".formatted(accountId(), regionName());
+    }
+
     protected String accountId(){
         var info = identityInfo();
         return info != null ? info.accountId() : "";
@@ -0,0 +1,241 @@
+package cj.aws;
+
+import io.quarkus.runtime.ShutdownEvent;
+import org.slf4j.Logger;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.DescribeImagesRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeInstancesRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeNatGatewaysRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeNetworkInterfacesRequest;
+import software.amazon.awssdk.services.ec2.model.Filter;
+import software.amazon.awssdk.services.ec2.model.GroupIdentifier;
+import software.amazon.awssdk.services.ec2.model.Image;
+import software.amazon.awssdk.services.ec2.model.ImageState;
+import software.amazon.awssdk.services.ec2.model.Instance;
+import software.amazon.awssdk.services.ec2.model.InstanceStateName;
+import software.amazon.awssdk.services.ec2.model.NatGateway;
+import software.amazon.awssdk.services.ec2.model.NatGatewayState;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Shared poller for resources that tasks wait on.
+ * <p>
+ * Waits are registered as futures. On every tick, all pending waits of the same kind and
+ * region are resolved with a single (paginated) Describe call filtered by all their ids,
+ * so waiting on 50 instances costs the same as waiting on one, and no thread sleeps per wait.
+ */
+@ApplicationScoped
+public class AWSWaiters {
+    // EC2 accepts up to 200 values per filter
+    static final int MAX_FILTER_VALUES = 200;
+    static final Set<InstanceStateName> ACTIVE_STATES = Set.of(InstanceStateName.RUNNING, InstanceStateName.SHUTTING_DOWN);
+
+    @Inject
+    Logger log;
+
+    @Inject
+    AWSConfiguration config;
+
+    enum Kind {instance, image, natGateway, subnetInstances, securityGroupInterfaces, condition}
+
+    record Wait(AWSClients aws, Kind kind, String id, Predicate<Object> done, Callable<Boolean> condition,
+                CompletableFuture<Object> future) {
+    }
+
+    private final ConcurrentLinkedQueue<Wait> pending = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService scheduler;
+
+    public CompletableFuture<Instance> instanceState(AWSClients aws, String instanceId, Duration atMost,
+                                                     InstanceStateName... states) {
+        var targets = Set.of(states);
+        return register(aws, Kind.instance, instanceId, atMost,
+                i -> i != null && targets.contains(((Instance) i).state().name()))
+                .thenApply(Instance.class::cast);
+    }
+
+    public CompletableFuture<Image> imageState(AWSClients aws, String imageId, Duration atMost, ImageState state) {
+        return register(aws, Kind.image, imageId, atMost,
+                i -> i != null && state.equals(((Image) i).state()))
+                .thenApply(Image.class::cast);
+    }
+
+    public CompletableFuture<NatGateway> natGatewayState(AWSClients aws, String natGatewayId, Duration atMost,
+                                                         NatGatewayState state) {
+        return register(aws, Kind.natGateway, natGatewayId, atMost,
+                n -> n != null && state.equals(((NatGateway) n).state()))
+                .thenApply(NatGateway.class::cast);
+    }
+
+    /**
+     * Completes when no instances are running or shutting down in the subnet.
+     */
+    public CompletableFuture<Object> subnetEmpty(AWSClients aws, String subnetId, Duration atMost) {
+        return register(aws, Kind.subnetInstances, subnetId, atMost, count -> ((Integer) count) == 0);
+    }
+
+    /**
+     * Completes when no network interfaces use the security group.
+     */
+    public CompletableFuture<Object> securityGroupEmpty(AWSClients aws, String groupId, Duration atMost) {
+        return register(aws, Kind.securityGroupInterfaces, groupId, atMost, count -> ((Integer) count) == 0);
+    }
+
+    /**
+     * Evaluates the condition on every tick. Conditions can not be batched, but still share the poller thread.
+     */
+    public CompletableFuture<Object> until(Callable<Boolean> condition, Duration atMost) {
+        var future = new CompletableFuture<Object>();
+        add(new Wait(null, Kind.condition, null, null, condition, future), atMost);
+        return future;
+    }
+
+    private CompletableFuture<Object> register(AWSClients aws, Kind kind, String id, Duration atMost,
+                                               Predicate<Object> done) {
+        var future = new CompletableFuture<Object>();
+        add(new Wait(aws, kind, id, done, null, future), atMost);
+        return future;
+    }
+
+    private void add(Wait wait, Duration atMost) {
+        wait.future()
+                .orTimeout(atMost.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((r, e) -> pending.remove(wait));
+        pending.add(wait);
+        ensureStarted();
+        log.trace("Waiting for {} {} (at most {})", wait.kind(), wait.id(), atMost);
+    }
+
+    private synchronized void ensureStarted() {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "cj-aws-waiters");
+            thread.setDaemon(true);
+            return thread;
+        });
+        var interval = config.waitersPollSeconds();
+        scheduler.scheduleWithFixedDelay(this::tick, interval, interval, TimeUnit.SECONDS);
+    }
+
+    void onStop(@Observes ShutdownEvent ev) {
+        synchronized (this) {
+            if (scheduler != null) scheduler.shutdownNow();
+        }
+    }
+
+    void tick() {
+        if (pending.isEmpty()) return;
+        var groups = new LinkedHashMap<AWSClients, Map<Kind, List<Wait>>>();
+        for (var wait : pending) {
+            if (wait.future().isDone()) continue;
+            if (wait.kind() == Kind.condition) {
+                poll(wait);
+                continue;
+            }
+            groups.computeIfAbsent(wait.aws(), k -> new HashMap<>())
+                    .computeIfAbsent(wait.kind(), k -> new ArrayList<>())
+                    .add(wait);
+        }
+        groups.forEach((aws, byKind) -> {
+            try (var ec2 = aws.ec2()) {
+                byKind.forEach((kind, waits) -> poll(ec2, kind, waits));
+            } catch (RuntimeException e) {
+                log.debug("Failed to poll waiters, retrying on next tick: {}", e.getMessage());
+            }
+        });
+    }
+
+    private void poll(Wait wait) {
+        try {
+            if (Boolean.TRUE.equals(wait.condition().call())) {
+                wait.future().complete(true);
+            }
+        } catch (Exception e) {
+            wait.future().completeExceptionally(e);
+        }
+    }
+
+    private void poll(Ec2Client ec2, Kind kind, List<Wait> waits) {
+        var ids = waits.stream().map(Wait::id).distinct().toList();
+        var status = new HashMap<String, Object>();
+        for (int i = 0; i < ids.size(); i += MAX_FILTER_VALUES) {
+            var chunk = ids.subList(i, Math.min(i + MAX_FILTER_VALUES, ids.size()));
+            status.putAll(describe(ec2, kind, chunk));
+        }
+        log.debug("Polled {} {} waits with {} ids", waits.size(), kind, ids.size());
+        for (var wait : waits) {
+            var value = status.get(wait.id());
+            if (wait.done().test(value)) {
+                wait.future().complete(value);
+            }
+        }
+    }
+
+    private Map<String, Object> describe(Ec2Client ec2, Kind kind, List<String> ids) {
+        return switch (kind) {
+            case instance -> ec2.describeInstancesPaginator(DescribeInstancesRequest.builder()
+                            .filters(filter("instance-id", ids))
+                            .build())
+                    .reservations().stream()
+                    .flatMap(r -> r.instances().stream())
+                    .collect(Collectors.toMap(Instance::instanceId, i -> i, (a, b) -> a));
+            case image -> ec2.describeImages(DescribeImagesRequest.builder()
+                            .filters(filter("image-id", ids))
+                            .build())
+                    .images().stream()
+                    .collect(Collectors.toMap(Image::imageId, i -> i, (a, b) -> a));
+            case natGateway -> ec2.describeNatGatewaysPaginator(DescribeNatGatewaysRequest.builder()
+                            .filter(filter("nat-gateway-id", ids))
+                            .build())
+                    .natGateways().stream()
+                    .collect(Collectors.toMap(NatGateway::natGatewayId, n -> n, (a, b) -> a));
+            case subnetInstances -> {
+                var counts = new HashMap<String, Object>();
+                ids.forEach(id -> counts.put(id, 0));
+                ec2.describeInstancesPaginator(DescribeInstancesRequest.builder()
+                                .filters(filter("subnet-id", ids))
+                                .build())
+                        .reservations().stream()
+                        .flatMap(r -> r.instances().stream())
+                        .filter(i -> ACTIVE_STATES.contains(i.state().name()))
+                        .forEach(i -> counts.merge(i.subnetId(), 1, (a, b) -> (Integer) a + 1));
+                yield counts;
+            }
+            case securityGroupInterfaces -> {
+                var counts = new HashMap<String, Object>();
+                ids.forEach(id -> counts.put(id, 0));
+                ec2.describeNetworkInterfacesPaginator(DescribeNetworkInterfacesRequest.builder()
+                                .filters(filter("group-id", ids))
+                                .build())
+                        .networkInterfaces()
+                        .forEach(eni -> eni.groups().stream()
+                                .map(GroupIdentifier::groupId)
+                                .filter(counts::containsKey)
+                                .forEach(g -> counts.merge(g, 1, (a, b) -> (Integer) a + 1)));
+                yield counts;
+            }
+            case condition -> Map.of();
+        };
+    }
+
+    private static Filter filter(String name, List<String> values) {
+        return Filter.builder().name(name).values(values).build();
+    }
+}
@@ -6,9 +6,13 @@ import cj.Input;
 import cj.TaskConfiguration;
 import cj.aws.AWSClientsManager;
 import cj.aws.AWSIdentity;
+import cj.aws.AWSIdentityInfo;
 import cj.aws.AWSInput;
 import cj.qute.Templates;
+import cj.shell.ShellInput;
 import cj.spi.Task;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.regions.Region;
 
 import javax.enterprise.context.Dependent;
 import javax.inject.Inject;
@@ -35,8 +39,8 @@ public class BypassTask extends BaseTask {
             debug("Empty bypass");
             return Optional.empty();
         }
-        renderTemplates(args);
-        var enriched = enrich(args);
+        var rendered = renderTemplates(args);
+        var enriched = enrich(rendered, args);
         if (enriched.isEmpty()) {
             debug("Bypass emptied");
             return Optional.empty();
@@ -44,48 +48,83 @@ public class BypassTask extends BaseTask {
         debug("Bypassing `{}` as `{}`", join(args), join(enriched));
         var enrichedArr = enriched.toArray(new String[0]);
         var result = shell().shellTask(enrichedArr);
+        identityEnvironment(result);
         return Optional.ofNullable(result);
     }
 
-    private void renderTemplates(String... args) {
+    /**
+     * Renders the task templates and returns their paths by output name.
+     * With an identity, outputs are prefixed by its account id so that concurrent bypasses do not share files.
+     */
+    private Map<String, String> renderTemplates(String... args) {
         var taskConfig = configuration().taskConfigForQuery(args);
         var templatesCfgs = taskConfig.map(c -> c.templates())
                 .orElse(List.of());
         var taskName = args[0];
+        var rendered = new HashMap<String, String>(templates.templatePaths());
         try{
-            //TODO: Change repeaters to pass identity and region inputs to tasks
-            //TODO: Pass identity and region info to bypass template
-            //TODO: Export identity and region environment variables to child shell tasks
             var data = new HashMap<String,String>();
-            var identity = inputAs(AWSInput.identity, AWSIdentity.class);
-            if (identity.isPresent()) {
-                var id = identity.get();
-                var accountId = awsManager.getInfo(id).accountId();
-                data.put("accountId", accountId);
-            }
+            var accountId = accountId();
+            accountId.ifPresent(a -> data.put("accountId", a));
             templatesCfgs.forEach(t -> {
-                templates.render(taskName,
+                var outputName = accountId.map(a -> a + "-" + t.output()).orElse(t.output());
+                var path = templates.render(taskName,
                         t.template(),
-                        t.output(),
+                        outputName,
                         data);
+                if (path != null) rendered.put(t.output(), path.toAbsolutePath().toString());
             });
         }catch(Exception e){
             throw fail("Failed to render templates for task", e);
         }
+        return rendered;
+    }
+
+    /**
+     * Passes the identity to the child process: its credentials and region go in the AWS_* environment
+     * variables and its output lines are prefixed with account@region.
+     */
+    private void identityEnvironment(Task shellTask) {
+        var identity = inputAs(AWSInput.identity, AWSIdentity.class);
+        if (identity.isEmpty()) return;
+        var id = identity.get();
+        var targetRegion = inputAs(AWSInput.targetRegion, Region.class);
+        var region = targetRegion.orElseGet(awsManager::defaultRegion);
+        var env = new HashMap<String, String>();
+        try {
+            var credentials = awsManager.credentials(id).resolveCredentials();
+            env.put("AWS_ACCESS_KEY_ID", credentials.accessKeyId());
+            env.put("AWS_SECRET_ACCESS_KEY", credentials.secretAccessKey());
+            env.put("AWS_SESSION_TOKEN", credentials instanceof AwsSessionCredentials session
+                    ? session.sessionToken()
+                    : null);
+        } catch (RuntimeException e) {
+            warn("Failed to resolve credentials of {}, the child process will look up its own: {}", id, e.getMessage());
+        }
+        env.put("AWS_REGION", region.id());
+        env.put("AWS_DEFAULT_REGION", region.id());
+        var account = accountId().orElse(id.toString());
+        var prefix = targetRegion.map(r -> account + "@" + r.id()).orElse(account);
+        shellTask.withInput(ShellInput.env, env);
+        shellTask.withInput(ShellInput.outputPrefix, prefix);
+    }
+
+    private Optional<String> accountId() {
+        return inputAs(AWSInput.identity, AWSIdentity.class)
+                .map(awsManager::getInfo)
+                .map(AWSIdentityInfo::accountId);
     }
 
-    private List<String> enrich(String... args) {
+    private List<String> enrich(Map<String, String> templatePaths, String... args) {
         if (args == null || args.length == 0) return List.of();
         var taskCfg = configuration().taskConfigForQuery(args);
         if (taskCfg.isEmpty()) return List.of(args);
-        var taskName = taskCfg.get().name();
         var taskArgs = Arrays.copyOfRange(args, 1, args.length);
         var bypass = taskCfg.flatMap(TaskConfiguration::bypass);
         if (bypass.isEmpty()) return List.of(args);
-        var bypassInputs = inputsMap().bypassInputs();
         var bypassList = bypass.get()
                 .stream()
-                .flatMap(expr -> bypassValues(expr, taskArgs))
+                .flatMap(expr -> bypassValues(expr, templatePaths, taskArgs))
                 .toList();
         var result = bypassList;
         return result;
@@ -95,13 +134,14 @@ public class BypassTask extends BaseTask {
     Templates templates;
 
     private Stream<String> bypassValues(String expr,
+                                        Map<String, String> templatePaths,
                                         String... prompt) {
         //TODO: Parse qute expressions
         var args = String.join(" ", prompt);
-        var templatepaths = templates.templatePaths();
         Map<String,Object> data =  Map.of(
                 "args", args,
-                "templates", templatepaths);
+                "templates", templatePaths,
+                "templatePath", templatePaths);
         var value = templates.fmt(expr, data);
         return Stream.of(value);
     }
@@ -5,10 +5,14 @@ import cj.aws.AWSTask;
 import cj.aws.ec2.filter.FilterNATGateways;
 import cj.spi.Task;
 import software.amazon.awssdk.services.ec2.model.NatGateway;
+import software.amazon.awssdk.services.ec2.model.NatGatewayState;
 
 import javax.enterprise.context.Dependent;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static cj.aws.AWSOutput.NatGatewaysMatch;
 
@@ -29,6 +33,16 @@ public class DeleteNATGateways extends AWSTask {
     public void apply() {
         var xs = filterNATs.outputList(NatGatewaysMatch, NatGateway.class);
         xs.forEach(this::deleteResource);
+        awaitDeleted(xs);
+    }
+
+    private void awaitDeleted(List<NatGateway> xs) {
+        var atMost = Duration.ofMillis(config().largeAtMostTimeoutMs());
+        var deleted = xs.stream()
+                .map(nat -> waiters().natGatewayState(aws(), nat.natGatewayId(), atMost, NatGatewayState.DELETED))
+                .toList();
+        CompletableFuture.allOf(deleted.toArray(new CompletableFuture<?>[0])).join();
+        debug("Deleted {} NAT gateways", xs.size());
     }
 
     private void deleteResource(NatGateway nat) {
@@ -1,24 +1,44 @@
 package cj.aws.ec2.delete;
 
-import cj.aws.AWSInput;
-import cj.aws.AWSTask;
+import cj.aws.AWSErrors;
+import cj.aws.AWSWrite;
 import cj.aws.ec2.filter.FilterNetworkInterfaces;
 import cj.spi.Task;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.DeleteNetworkInterfaceRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeNetworkInterfacesRequest;
 import software.amazon.awssdk.services.ec2.model.NetworkInterface;
+import software.amazon.awssdk.services.ec2.model.NetworkInterfaceStatus;
 
 import javax.enterprise.context.Dependent;
-import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static cj.aws.AWSOutput.NetworkINterfacesMatch;
 
+/**
+ * Deletes network interfaces as a pipeline: refresh the status of every pending ENI with one
+ * batched describe, delete the available ones concurrently, and park the ones still attached
+ * or detaching (load balancer and lambda ENIs take minutes to release) for the next round.
+ */
 @Dependent
-public class DeleteNetworkInterfaces extends AWSTask {
-    @Inject
-    FilterNetworkInterfaces filterENIs;
+public class DeleteNetworkInterfaces extends AWSWrite {
+    // EC2 accepts up to 200 values per filter
+    static final int DESCRIBE_BATCH = 200;
+    static final Duration MIN_PARK = Duration.ofSeconds(5);
+    static final Duration MAX_PARK = Duration.ofSeconds(60);
 
     @Inject
-    Instance<DeleteNetworkInterface> deleteENIInstance;
+    FilterNetworkInterfaces filterENIs;
 
     @Override
     public Task getDependency() {
@@ -27,14 +47,86 @@ public class DeleteNetworkInterfaces extends AWSTask {
 
     @Override
     public void apply() {
-        var lbs = filterENIs.outputList(NetworkINterfacesMatch, NetworkInterface.class);
-        lbs.stream().forEach(this::deleteNetworkInterface);
+        var enis = filterENIs.outputList(NetworkINterfacesMatch, NetworkInterface.class);
+        if (enis.isEmpty()) return;
+        var ec2 = aws().ec2();
+        var deadline = Instant.now().plusMillis(config().largeAtMostTimeoutMs());
+        var pending = new LinkedHashSet<String>();
+        enis.forEach(eni -> pending.add(eni.networkInterfaceId()));
+        var failed = new ConcurrentHashMap<String, AwsServiceException>();
+        var park = MIN_PARK;
+        while (true) {
+            var current = refresh(ec2, pending);
+            pending.retainAll(current.keySet());
+            var deletable = current.values().stream()
+                    .filter(eni -> NetworkInterfaceStatus.AVAILABLE.equals(eni.status()))
+                    .toList();
+            debug("{} ENIs pending, {} deletable", pending.size(), deletable.size());
+            var parked = ConcurrentHashMap.<String>newKeySet();
+            forEachConcurrent(deletable, maxConcurrency(), eni -> delete(ec2, eni, parked, failed));
+            deletable.stream()
+                    .map(NetworkInterface::networkInterfaceId)
+                    .filter(id -> !parked.contains(id))
+                    .forEach(pending::remove);
+            if (pending.isEmpty()) break;
+            if (Instant.now().plus(park).isAfter(deadline)) {
+                warn("ENIs not released in time: {}", pending);
+                break;
+            }
+            debug("Parking {} ENIs for {}s", pending.size(), park.toSeconds());
+            sleep(park);
+            park = park.multipliedBy(2).compareTo(MAX_PARK) > 0 ? MAX_PARK : park.multipliedBy(2);
+        }
+        failed.forEach((id, e) -> warn("Failed to delete ENI {}: {}", id, e.getMessage()));
+        if (!failed.isEmpty())
+            throw fail(failed.values().iterator().next(),
+                    "Failed to delete %d network interfaces".formatted(failed.size()));
+        if (!pending.isEmpty())
+            throw fail("%d network interfaces still in use after %ds"
+                    .formatted(pending.size(), Duration.ofMillis(config().largeAtMostTimeoutMs()).toSeconds()));
+        success();
+    }
+
+    private Map<String, NetworkInterface> refresh(Ec2Client ec2, Set<String> ids) {
+        var result = new HashMap<String, NetworkInterface>();
+        var idList = new ArrayList<>(ids);
+        for (int i = 0; i < idList.size(); i += DESCRIBE_BATCH) {
+            var chunk = idList.subList(i, Math.min(i + DESCRIBE_BATCH, idList.size()));
+            var req = DescribeNetworkInterfacesRequest.builder()
+                    .filters(filter("network-interface-id", List.copyOf(chunk)))
+                    .build();
+            throttled(() -> ec2.describeNetworkInterfacesPaginator(req).networkInterfaces().stream().toList())
+                    .forEach(eni -> result.put(eni.networkInterfaceId(), eni));
+        }
+        return result;
+    }
+
+    private void delete(Ec2Client ec2, NetworkInterface eni, Set<String> parked, Map<String, AwsServiceException> failed) {
+        var eniId = eni.networkInterfaceId();
+        try {
+            debug("Deleting ENI {} {}", eniId, eni.description());
+            var request = DeleteNetworkInterfaceRequest.builder()
+                    .networkInterfaceId(eniId)
+                    .build();
+            throttled(() -> ec2.deleteNetworkInterface(request));
+        } catch (AwsServiceException e) {
+            var code = e.awsErrorDetails() != null ? e.awsErrorDetails().errorCode() : "";
+            if ("InvalidNetworkInterfaceID.NotFound".equals(code)) {
+                debug("ENI {} no longer exists.", eniId);
+            } else if (AWSErrors.isDependencyError(e)) {
+                parked.add(eniId);
+            } else {
+                failed.put(eniId, e);
+            }
+        }
     }
 
-    private void deleteNetworkInterface(NetworkInterface eni) {
-        var delLbTask = deleteENIInstance
-                .get()
-                .withInput(AWSInput.targetNetworkInterfaceId, eni.networkInterfaceId());
-        submit(delLbTask);
+    private void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw fail(e);
+        }
     }
 }
@@ -0,0 +1,117 @@
+package cj.aws.ec2.delete;
+
+import cj.aws.AWSBatch;
+import cj.aws.AWSWrite;
+import cj.aws.route53.FilterRecords;
+import cj.aws.route53.ZoneRecord;
+import cj.spi.Task;
+import software.amazon.awssdk.services.route53.Route53Client;
+import software.amazon.awssdk.services.route53.model.Change;
+import software.amazon.awssdk.services.route53.model.ChangeAction;
+import software.amazon.awssdk.services.route53.model.ChangeBatch;
+import software.amazon.awssdk.services.route53.model.ChangeResourceRecordSetsRequest;
+import software.amazon.awssdk.services.route53.model.ResourceRecord;
+
+import javax.enterprise.context.Dependent;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static cj.aws.AWSOutput.RecordsMatch;
+
+/**
+ * Deletes the matched records with as few ChangeResourceRecordSets calls as the
+ * Route53 limits allow: 1000 record values and 32000 value characters per change batch.
+ */
+@Dependent
+@Named("aws-delete-records")
+public class DeleteRecords extends AWSWrite {
+    static final int MAX_RECORDS_PER_BATCH = 1000;
+    static final int MAX_CHARS_PER_BATCH = 32_000;
+
+    @Inject
+    FilterRecords filterRecords;
+
+    @Override
+    public Task getDependency() {
+        return filterRecords;
+    }
+
+    @Override
+    public void apply() {
+        var records = filterRecords.outputList(RecordsMatch, ZoneRecord.class);
+        if (records.isEmpty()) return;
+        var byZone = records.stream().collect(Collectors.groupingBy(
+                ZoneRecord::hostedZoneId,
+                LinkedHashMap::new,
+                Collectors.toList()));
+        var r53 = aws().route53();
+        var failed = new ConcurrentHashMap<ZoneRecord, String>();
+        forEachConcurrent(List.copyOf(byZone.values()), maxConcurrency(), zoneRecords -> {
+            for (var chunk : chunks(zoneRecords)) {
+                var batch = AWSBatch.<ZoneRecord>of(chunk.size(), this::key, xs -> delete(r53, xs));
+                failed.putAll(batch.apply(chunk).failed());
+            }
+        });
+        failed.forEach((zr, reason) -> warn("Failed to delete record {}: {}", key(zr), reason));
+        if (!failed.isEmpty())
+            throw fail("Failed to delete %d records".formatted(failed.size()));
+        success();
+    }
+
+    private List<String> delete(Route53Client r53, List<ZoneRecord> records) {
+        var zoneId = records.get(0).hostedZoneId();
+        var changes = records.stream()
+                .map(zr -> Change.builder()
+                        .action(ChangeAction.DELETE)
+                        .resourceRecordSet(zr.recordSet())
+                        .build())
+                .toList();
+        var request = ChangeResourceRecordSetsRequest.builder()
+                .hostedZoneId(zoneId)
+                .changeBatch(ChangeBatch.builder().changes(changes).build())
+                .build();
+        throttled(() -> r53.changeResourceRecordSets(request));
+        debug("Deleted {} records from {}", changes.size(), zoneId);
+        return List.of();
+    }
+
+    /**
+     * Splits the records of a zone into change batches within the Route53 request limits.
+     */
+    static List<List<ZoneRecord>> chunks(List<ZoneRecord> records) {
+        var result = new ArrayList<List<ZoneRecord>>();
+        var current = new ArrayList<ZoneRecord>();
+        int values = 0;
+        int chars = 0;
+        for (var zr : records) {
+            var rrs = zr.recordSet().resourceRecords();
+            var recordValues = Math.max(1, rrs.size());
+            var recordChars = rrs.stream()
+                    .map(ResourceRecord::value)
+                    .mapToInt(String::length)
+                    .sum();
+            if (!current.isEmpty()
+                    && (values + recordValues > MAX_RECORDS_PER_BATCH
+                    || chars + recordChars > MAX_CHARS_PER_BATCH)) {
+                result.add(current);
+                current = new ArrayList<>();
+                values = 0;
+                chars = 0;
+            }
+            current.add(zr);
+            values += recordValues;
+            chars += recordChars;
+        }
+        if (!current.isEmpty()) result.add(current);
+        return result;
+    }
+
+    private String key(ZoneRecord zr) {
+        return zr.recordSet().name() + "/" + zr.recordSet().typeAsString() + "/" + zr.recordSet().setIdentifier();
+    }
+}
@@ -1,39 +1,130 @@
 package cj.aws.ec2.delete;
 
-import cj.aws.AWSInput;
-import cj.aws.AWSTask;
+import cj.aws.AWSBatch;
+import cj.aws.AWSWrite;
 import cj.aws.ec2.filter.FilterSecurityGroupRules;
 import cj.spi.Task;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.IpPermission;
+import software.amazon.awssdk.services.ec2.model.RevokeSecurityGroupEgressRequest;
+import software.amazon.awssdk.services.ec2.model.RevokeSecurityGroupIngressRequest;
 import software.amazon.awssdk.services.ec2.model.SecurityGroupRule;
 
 import javax.enterprise.context.Dependent;
-import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import static cj.aws.AWSOutput.SecurityGroupRulesMatch;
 
+/**
+ * Revokes rules with one request per (security group, direction), groups in parallel.
+ */
 @Dependent
-public class DeleteSecurityGroupRules extends AWSTask {
+public class DeleteSecurityGroupRules extends AWSWrite {
+    static final int BATCH_SIZE = 100;
+
     @Inject
     FilterSecurityGroupRules filterRules;
 
-    @Inject
-    Instance<DeleteSecurityGroupRuleTask> deleteRuleInstance;
     @Override
     public Task getDependency() {
         return filterRules;
     }
 
+    record RuleGroup(String groupId, boolean egress, List<SecurityGroupRule> rules) {}
+
     @Override
     public void apply() {
         var rules = filterRules.outputList(SecurityGroupRulesMatch, SecurityGroupRule.class);
-        rules.forEach(this::deleteRule);
+        if (rules.isEmpty()) return;
+        var groups = rules.stream()
+                .collect(Collectors.groupingBy(
+                        sgr -> Map.entry(sgr.groupId(), sgr.isEgress()),
+                        LinkedHashMap::new,
+                        Collectors.toList()))
+                .entrySet().stream()
+                .map(e -> new RuleGroup(e.getKey().getKey(), e.getKey().getValue(), e.getValue()))
+                .toList();
+        debug("Revoking {} security group rules in {} groups", rules.size(), groups.size());
+        var ec2 = aws().ec2();
+        var failed = new ConcurrentHashMap<String, String>();
+        var cause = new AtomicReference<AwsServiceException>();
+        forEachConcurrent(groups, maxConcurrency(), group -> {
+            var result = revoke(ec2, group);
+            result.failed().forEach((sgr, reason) -> failed.put(sgr.securityGroupRuleId(), reason));
+            cause.compareAndSet(null, result.cause().get());
+        });
+        failed.forEach((ruleId, reason) -> warn("Failed to revoke security group rule {}: {}", ruleId, reason));
+        if (!failed.isEmpty())
+            throw fail(cause.get(), "Failed to revoke %d security group rules".formatted(failed.size()));
+        success();
     }
 
-    private void deleteRule(SecurityGroupRule sgr) {
-        var deleteRule = deleteRuleInstance.get()
-                .withInput(AWSInput.securityGroupRule, sgr);
-        submit(deleteRule);
+    private AWSBatch.Result<SecurityGroupRule> revoke(Ec2Client ec2, RuleGroup group) {
+        var direction = group.egress() ? "egress" : "ingress";
+        var batch = AWSBatch.<SecurityGroupRule>of(BATCH_SIZE, SecurityGroupRule::securityGroupRuleId, chunk -> {
+            var ids = new ArrayList<String>(chunk.size());
+            chunk.forEach(sgr -> ids.add(sgr.securityGroupRuleId()));
+            boolean revoked;
+            List<IpPermission> unknown;
+            if (group.egress()) {
+                var req = RevokeSecurityGroupEgressRequest.builder()
+                        .groupId(group.groupId())
+                        .securityGroupRuleIds(ids)
+                        .build();
+                var resp = throttled(() -> ec2.revokeSecurityGroupEgress(req));
+                revoked = !Boolean.FALSE.equals(resp.returnValue());
+                unknown = resp.unknownIpPermissions();
+            } else {
+                var req = RevokeSecurityGroupIngressRequest.builder()
+                        .groupId(group.groupId())
+                        .securityGroupRuleIds(ids)
+                        .build();
+                var resp = throttled(() -> ec2.revokeSecurityGroupIngress(req));
+                revoked = !Boolean.FALSE.equals(resp.returnValue());
+                unknown = resp.unknownIpPermissions();
+            }
+            var unrevoked = unrevoked(chunk, revoked, unknown);
+            debug("Deleted {} security group rules {} {}", ids.size() - unrevoked.size(), direction, group.groupId());
+            return unrevoked;
+        });
+        return batch.apply(group.rules());
     }
 
+    /**
+     * Ids of the rules a revoke call left in place: those matching a permission it reported as unknown,
+     * or the whole chunk when it returned false without saying which.
+     */
+    static List<String> unrevoked(List<SecurityGroupRule> chunk, boolean revoked, List<IpPermission> unknown) {
+        var ids = chunk.stream().map(SecurityGroupRule::securityGroupRuleId).toList();
+        if (unknown == null || unknown.isEmpty()) return revoked ? List.of() : ids;
+        var matched = chunk.stream()
+                .filter(sgr -> unknown.stream().anyMatch(perm -> matches(perm, sgr)))
+                .map(SecurityGroupRule::securityGroupRuleId)
+                .toList();
+        return matched.isEmpty() ? ids : matched;
+    }
+
+    static boolean matches(IpPermission perm, SecurityGroupRule sgr) {
+        if (!Objects.equals(perm.ipProtocol(), sgr.ipProtocol())) return false;
+        if (!Objects.equals(perm.fromPort(), sgr.fromPort()) || !Objects.equals(perm.toPort(), sgr.toPort())) return false;
+        if (sgr.cidrIpv4() != null)
+            return perm.ipRanges().stream().anyMatch(r -> sgr.cidrIpv4().equals(r.cidrIp()));
+        if (sgr.cidrIpv6() != null)
+            return perm.ipv6Ranges().stream().anyMatch(r -> sgr.cidrIpv6().equals(r.cidrIpv6()));
+        if (sgr.prefixListId() != null)
+            return perm.prefixListIds().stream().anyMatch(p -> sgr.prefixListId().equals(p.prefixListId()));
+        if (sgr.referencedGroupInfo() != null)
+            return perm.userIdGroupPairs().stream()
+                    .anyMatch(p -> Objects.equals(sgr.referencedGroupInfo().groupId(), p.groupId()));
+        return true;
+    }
 }
@@ -4,16 +4,15 @@ import cj.aws.AWSWrite;
 import cj.aws.ec2.filter.FilterSecurityGroups;
 import cj.spi.Task;
 import software.amazon.awssdk.services.ec2.model.DeleteSecurityGroupRequest;
-import software.amazon.awssdk.services.ec2.model.DescribeNetworkInterfacesRequest;
 import software.amazon.awssdk.services.ec2.model.SecurityGroup;
 
 import javax.enterprise.context.Dependent;
 import javax.inject.Inject;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
 import static cj.Utils.msToStr;
 import static cj.aws.AWSOutput.SecurityGroupsMatch;
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
-import static org.awaitility.Awaitility.await;
 
 @Dependent
 public class DeleteSecurityGroups extends AWSWrite {
@@ -28,17 +27,25 @@ public class DeleteSecurityGroups extends AWSWrite {
 
     @Override
     public void apply() {
-        var groups = filterGroups.outputList(SecurityGroupsMatch, SecurityGroup.class);
+        var groups = filterGroups.outputList(SecurityGroupsMatch, SecurityGroup.class)
+                .stream()
+                .filter(sg -> {
+                    if (isDefault(sg)) warn("Can not delete default security group");
+                    return !isDefault(sg);
+                })
+                .toList();
         debug("Deleting {} security groups ", groups.size());
-        groups.forEach(this::deleteGroup);
+        // Register every wait up front, so that all groups are polled together
+        var empty = groups.stream()
+                .map(this::waitUntilEmpty)
+                .toList();
+        for (int i = 0; i < groups.size(); i++) {
+            deleteGroup(groups.get(i), empty.get(i));
+        }
     }
 
-    private void deleteGroup(SecurityGroup sg) {
-        if (isDefault(sg)){
-            warn("Can not delete default security group");
-            return;
-        }
-        waitUntilEmpty(sg);
+    private void deleteGroup(SecurityGroup sg, CompletableFuture<?> empty) {
+        empty.join();
         var req = DeleteSecurityGroupRequest
                 .builder()
                 .groupId(sg.groupId())
@@ -51,26 +58,10 @@ public class DeleteSecurityGroups extends AWSWrite {
         return "default".equals(sg.groupName());
     }
 
-    private void waitUntilEmpty(SecurityGroup sg) {
+    private CompletableFuture<?> waitUntilEmpty(SecurityGroup sg) {
         var atMost = config().largeAtMostTimeoutMs();
-        var pollInterval = config().mediumPollIntervalMs();
-        debug("Waiting until sg is empty {} ({}|{}).", sg.groupId(), msToStr(pollInterval), msToStr(atMost));
-        await().atMost(atMost, MILLISECONDS)
-                    .pollInterval(pollInterval, MILLISECONDS)
-                    .until(() -> isEmpty(sg));
-
-    }
-
-    private Boolean isEmpty(SecurityGroup sg) {
-        var filterName = "group-id";
-        var filterValue = sg.groupId();
-        var req = DescribeNetworkInterfacesRequest.builder()
-                .filters(filter(filterName, filterValue))
-                .build();
-        var enis = aws().ec2().describeNetworkInterfaces(req).networkInterfaces();
-        var eniIds = enis.stream().map(eni -> eni.networkInterfaceId()).toList();
-        debug("Found {} enis for security group {}. {}", enis.size(), sg.groupId(), eniIds);
-        return enis.isEmpty();
+        debug("Waiting until sg is empty {} ({}).", sg.groupId(), msToStr(atMost));
+        return waiters().securityGroupEmpty(aws(), sg.groupId(), Duration.ofMillis(atMost));
     }
 
 
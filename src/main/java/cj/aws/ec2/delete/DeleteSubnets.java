@@ -3,23 +3,21 @@ package cj.aws.ec2.delete;
 import cj.aws.AWSWrite;
 import cj.aws.ec2.filter.FilterSubnets;
 import cj.spi.Task;
-import org.awaitility.core.ConditionTimeoutException;
-import software.amazon.awssdk.services.ec2.model.DescribeInstancesRequest;
 import software.amazon.awssdk.services.ec2.model.Subnet;
 
 import javax.enterprise.context.Dependent;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static cj.aws.AWSOutput.SubnetMatch;
-import static java.util.concurrent.TimeUnit.MINUTES;
-import static java.util.concurrent.TimeUnit.SECONDS;
-import static org.awaitility.Awaitility.await;
-import static software.amazon.awssdk.services.ec2.model.InstanceStateName.RUNNING;
-import static software.amazon.awssdk.services.ec2.model.InstanceStateName.SHUTTING_DOWN;
 
 @Dependent
 public class DeleteSubnets extends AWSWrite {
+    static final Duration EMPTY_TIMEOUT = Duration.ofMinutes(10);
+
     @Inject
     FilterSubnets filterSubnets;
 
@@ -34,39 +32,27 @@ public class DeleteSubnets extends AWSWrite {
     @Override
     public void apply() {
         var subnets = outputList(SubnetMatch, Subnet.class);
-        subnets.forEach(this::deleteSubnet);
+        // Register every wait up front, so that all subnets are polled together
+        var empty = subnets.stream()
+                .map(this::waitUntilEmpty)
+                .toList();
+        for (int i = 0; i < subnets.size(); i++) {
+            deleteSubnet(subnets.get(i), empty.get(i));
+        }
     }
 
-    private void deleteSubnet(Subnet subnet) {
+    private void deleteSubnet(Subnet subnet, CompletableFuture<?> empty) {
         try {
-            waitUntilEmpty(subnet);
+            empty.join();
             var delSubnet = create(deleteSubnet).withSubnet(subnet);
             submit(delSubnet);
-        }catch (ConditionTimeoutException ex) {
+        }catch (CompletionException ex) {
             fail("Failed to empty subnet for cleanup in time." + subnet.subnetId());
         }
     }
 
-    private void waitUntilEmpty(Subnet subnet) {
-        await().atMost(10, MINUTES)
-                .pollInterval(15, SECONDS)
-                .until(() -> isEmpty(subnet));
-    }
-
-    private boolean isEmpty(Subnet subnet) {
-        var req = DescribeInstancesRequest
-                .builder()
-                .filters(filter("subnet-id", subnet.subnetId()))
-                .build();
-        var instances = aws().ec2().describeInstances(req).reservations()
-                .stream()
-                .flatMap( r -> r.instances().stream());
-        var activeInstances = instances
-                .map(i -> i.state().name())
-                .filter( state -> RUNNING.equals(state) || SHUTTING_DOWN.equals(state))
-                .findAny()
-                .isPresent();
-        debug("Active instances in subnet {}? {}", subnet.subnetId(), activeInstances);
-        return ! activeInstances;
+    private CompletableFuture<?> waitUntilEmpty(Subnet subnet) {
+        debug("Waiting until subnet {} has no active instances", subnet.subnetId());
+        return waiters().subnetEmpty(aws(), subnet.subnetId(), EMPTY_TIMEOUT);
     }
 }
@@ -1,12 +1,19 @@
 package cj.aws.ec2.delete;
 
+import cj.CJInput;
+import cj.RetryTask;
+import cj.aws.AWSErrors;
 import cj.aws.AWSWrite;
 import cj.spi.Task;
 import software.amazon.awssdk.services.ec2.model.DeleteVpcRequest;
 
 import javax.enterprise.context.Dependent;
+import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.function.Predicate;
 
 import static cj.aws.AWSInput.targetVPCId;
 @Dependent
@@ -48,9 +55,20 @@ public class DeleteVPC extends AWSWrite {
     @Inject
     DeleteVPCEndpoints deleteVPCEndpoints;
 
+    @Inject
+    Instance<RetryTask> retryInstance;
+
     @Override
     public void apply() {
         var vpcId = getInputString(targetVPCId);
+        if (isOptimistic()) {
+            teardown(vpcId);
+            return;
+        }
+        deleteVpc(vpcId);
+    }
+
+    private void deleteVpc(String vpcId) {
         var request = DeleteVpcRequest.builder()
                 .vpcId(vpcId)
                 .build();
@@ -58,9 +76,39 @@ public class DeleteVPC extends AWSWrite {
         debug("Deleted VPC {}/{}", region(), vpcId);
     }
 
+    /**
+     * Runs every phase at once and requeues the ones that fail on dependencies still
+     * being released, instead of waiting for each phase in order.
+     */
+    private void teardown(String vpcId) {
+        var deadline = Instant.now().plus(Duration.ofMinutes(config().aws().teardownDeadlineMinutes()));
+        Predicate<Throwable> retryOn = AWSErrors::isDependencyError;
+        var retries = phases().stream()
+                .map(phase -> retry(phase, deadline, retryOn))
+                .toList();
+        info("Tearing down VPC {} with {} concurrent phases until {}", vpcId, retries.size(), deadline);
+        forEachConcurrent(retries, retries.size(), this::submit);
+        RetryTask.retryUntil("DeleteVPC " + vpcId, () -> deleteVpc(vpcId), deadline, retryOn);
+    }
+
+    private Task retry(Task task, Instant deadline, Predicate<Throwable> retryOn) {
+        return create(retryInstance)
+                .withInput(CJInput.task, task)
+                .withInput(CJInput.retryUntil, deadline)
+                .withInput(CJInput.retryOn, retryOn);
+    }
+
+    private boolean isOptimistic() {
+        return config().aws().teardownOptimistic();
+    }
 
     @Override
     public List<Task> getDependencies() {
+        if (isOptimistic()) return List.of();
+        return phases();
+    }
+
+    private List<Task> phases() {
         return delegateAll(
                 terminateInstances,
                 deleteLoadBalancersV2,
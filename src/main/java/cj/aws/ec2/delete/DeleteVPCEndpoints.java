@@ -1,24 +1,28 @@
 package cj.aws.ec2.delete;
 
-import cj.aws.AWSInput;
-import cj.aws.AWSTask;
+import cj.aws.AWSBatch;
+import cj.aws.AWSWrite;
 import cj.aws.ec2.filter.FilterVPCEndpoints;
 import cj.spi.Task;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.ec2.model.DeleteVpcEndpointsRequest;
+import software.amazon.awssdk.services.ec2.model.UnsuccessfulItem;
+import software.amazon.awssdk.services.ec2.model.UnsuccessfulItemError;
 import software.amazon.awssdk.services.ec2.model.VpcEndpoint;
 
 import javax.enterprise.context.Dependent;
-import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static cj.aws.AWSOutput.VPCEndpointsMatch;
 
 @Dependent
-public class DeleteVPCEndpoints extends AWSTask {
-    @Inject
-    FilterVPCEndpoints filterVPCEs;
+public class DeleteVPCEndpoints extends AWSWrite {
+    static final int BATCH_SIZE = 100;
 
     @Inject
-    Instance<DeleteVPCEndpoint> deleteVPCEInstance;
+    FilterVPCEndpoints filterVPCEs;
 
     @Override
     public Task getDependency() {
@@ -28,12 +32,45 @@ public class DeleteVPCEndpoints extends AWSTask {
     @Override
     public void apply() {
         var xs = filterVPCEs.outputList(VPCEndpointsMatch, VpcEndpoint.class);
-        xs.forEach(this::deleteResource);
+        if (xs.isEmpty()) return;
+        var ec2 = aws().ec2();
+        var errors = new ConcurrentHashMap<String, UnsuccessfulItemError>();
+        var batch = AWSBatch.<VpcEndpoint>of(BATCH_SIZE, VpcEndpoint::vpcEndpointId, chunk -> {
+            var ids = chunk.stream().map(VpcEndpoint::vpcEndpointId).toList();
+            info("Deleting {} vpc endpoints {}", ids.size(), ids);
+            var request = DeleteVpcEndpointsRequest.builder()
+                    .vpcEndpointIds(ids)
+                    .build();
+            var unsuccessful = ec2.deleteVpcEndpoints(request).unsuccessful();
+            unsuccessful.forEach(item -> errors.put(item.resourceId(), item.error()));
+            return unsuccessful.stream()
+                    .map(UnsuccessfulItem::resourceId)
+                    .toList();
+        });
+        var result = batch.apply(xs);
+        result.failed().forEach((vpce, reason) ->
+                warn("Failed to delete vpc endpoint {}: {}", vpce.vpcEndpointId(),
+                        errors.containsKey(vpce.vpcEndpointId()) ? errors.get(vpce.vpcEndpointId()).message() : reason));
+        if (!result.isSuccess()) {
+            var cause = result.cause().get() != null
+                    ? result.cause().get()
+                    : errors.values().stream().findFirst().map(DeleteVPCEndpoints::asException).orElse(null);
+            throw fail(cause, "Failed to delete %d vpc endpoints".formatted(result.failed().size()));
+        }
+        success();
     }
 
-    private void deleteResource(VpcEndpoint vpce) {
-        var delTask = deleteVPCEInstance.get()
-                .withInput(AWSInput.targetVPCEndpoint, vpce);
-        submit(delTask);
+    /**
+     * Unsuccessful items come back in the response rather than as an error, wrap them so
+     * the failure can still be classified by its error code.
+     */
+    static AwsServiceException asException(UnsuccessfulItemError error) {
+        return AwsServiceException.builder()
+                .message(error.message())
+                .awsErrorDetails(AwsErrorDetails.builder()
+                        .errorCode(error.code())
+                        .errorMessage(error.message())
+                        .build())
+                .build();
     }
 }
@@ -1,24 +1,26 @@
 package cj.aws.ec2.delete;
 
 
-import cj.aws.AWSInput;
-import cj.aws.AWSTask;
+import cj.aws.AWSBatch;
+import cj.aws.AWSWrite;
 import cj.aws.ec2.filter.FilterInstances;
 import cj.spi.Task;
+import software.amazon.awssdk.services.ec2.model.Instance;
+import software.amazon.awssdk.services.ec2.model.TerminateInstancesRequest;
 
 import javax.enterprise.context.Dependent;
-import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import java.util.List;
 
 import static cj.aws.AWSOutput.InstancesMatch;
 
 @Dependent
-public class TerminateInstancesTask extends AWSTask {
-    @Inject
-    FilterInstances filterInstances;
+public class TerminateInstancesTask extends AWSWrite {
+    // TerminateInstances accepts up to 1000 instance ids per call
+    static final int BATCH_SIZE = 1000;
 
     @Inject
-    Instance<TerminateInstanceTask> terminateInstance;
+    FilterInstances filterInstances;
 
     @Override
     public Task getDependency() {
@@ -27,13 +29,25 @@ public class TerminateInstancesTask extends AWSTask {
 
     @Override
     public void apply() {
-        var instances = filterInstances.outputList(InstancesMatch, software.amazon.awssdk.services.ec2.model.Instance.class);
-        instances.forEach(this::terminate);
-    }
-
-    public void terminate(software.amazon.awssdk.services.ec2.model.Instance instance){
-        var terminate = terminateInstance.get()
-                .withInput(AWSInput.targetInstanceId, instance.instanceId());
-        submit(terminate);
+        var instances = filterInstances.outputList(InstancesMatch, Instance.class);
+        if (instances.isEmpty()) return;
+        var ec2 = aws().ec2();
+        var batch = AWSBatch.<Instance>of(BATCH_SIZE, Instance::instanceId, chunk -> {
+            var ids = chunk.stream().map(Instance::instanceId).toList();
+            debug("Terminating {} instances {}", ids.size(), ids);
+            var request = TerminateInstancesRequest.builder()
+                    .instanceIds(ids)
+                    .build();
+            ec2.terminateInstances(request);
+            return List.of();
+        });
+        var result = batch.apply(instances);
+        result.failed().forEach((instance, reason) ->
+                warn("Failed to terminate instance {}: {}", instance.instanceId(), reason));
+        debug("Terminated {}/{} instances in {} calls",
+                result.succeeded().size(), instances.size(), result.calls().get());
+        if (!result.isSuccess())
+            throw fail(result.cause().get(), "Failed to terminate %d instances".formatted(result.failed().size()));
+        success();
     }
 }
@@ -1,7 +1,7 @@
 package cj.aws.ec2.filter;
 
 import cj.aws.AWSFilter;
-import software.amazon.awssdk.services.ec2.model.Address;
+import cj.aws.AWSResources;
 import software.amazon.awssdk.services.ec2.model.DescribeAddressesRequest;
 
 import javax.enterprise.context.Dependent;
@@ -11,22 +11,12 @@ import static cj.aws.AWSOutput.AddressMatch;
 @Dependent
 public class FilterAddresses extends AWSFilter {
 
-    private boolean match(Address addr) {
-        var prefix = aws().config().filterPrefix();
-        var match = true;
-        if (prefix.isPresent()) {
-            match = addr.tags().stream()
-                    .anyMatch(tag -> tag.key().equals("Name") && tag.value().startsWith(prefix.get()));
-        }
-        return match;
-    }
-
     @Override
     public void apply() {
         var ec2 = aws().ec2();
         var describeAddresses = DescribeAddressesRequest.builder().build();
-        var addresses = ec2.describeAddresses(describeAddresses).addresses().stream();
-        var matches = addresses.filter(this::match).toList();
+        var addresses = ec2.describeAddresses(describeAddresses).addresses();
+        var matches = matching(addresses, AWSResources::of, configuredFilter());
         success(AddressMatch, matches);
     }
 }
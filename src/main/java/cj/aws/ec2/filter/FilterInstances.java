@@ -1,9 +1,9 @@
 package cj.aws.ec2.filter;
 
 import cj.aws.AWSFilter;
-import cj.aws.AWSInput;
+import cj.aws.AWSResources;
+import cj.filter.ResourceFilter;
 import software.amazon.awssdk.services.ec2.model.DescribeInstancesRequest;
-import software.amazon.awssdk.services.ec2.model.Instance;
 
 import javax.enterprise.context.Dependent;
 
@@ -12,30 +12,8 @@ import static cj.aws.AWSOutput.InstancesMatch;
 
 @Dependent
 public class FilterInstances extends AWSFilter {
-
-    private boolean match(Instance instance) {
-        var match = true;
-
-        var state = instance.state().nameAsString().toLowerCase();
-        var terminated = state.equals("terminated");
-
-        if (terminated) return false;
-
-        var vpcId = inputString(AWSInput.targetVPCId);
-        if (vpcId.isPresent()){
-            var vpcMatch = vpcId.get().equals(instance.vpcId());
-            match = match && vpcMatch;
-        }
-
-        var prefix = aws().config().filterPrefix();
-        if (prefix.isPresent()) {
-            var prefixMatch = instance.tags().stream()
-                    .anyMatch(tag -> tag.key().equals("Name")
-                            && tag.value().startsWith(prefix.get()));
-            match = match && prefixMatch;
-        }
-        return match;
-    }
+    private static final ResourceFilter NOT_TERMINATED = new ResourceFilter.Not(
+            new ResourceFilter.Equals(ResourceFilter.Field.state, "terminated", true));
 
     @Override
     public void apply() {
@@ -43,7 +21,7 @@ public class FilterInstances extends AWSFilter {
         var describeInstances = DescribeInstancesRequest.builder().build();
         var reservations = ec2.describeInstancesPaginator(describeInstances).reservations().stream();
         var instances = reservations.flatMap(reservation -> reservation.instances().stream()).toList();
-        var matches = instances.stream().filter(this::match).toList();
+        var matches = matching(instances, AWSResources::of, NOT_TERMINATED.and(resourceFilter()));
         debug("Matched {}/{} instances",  matches.size(), instances.size());
         success(InstancesMatch, matches);
     }
@@ -1,7 +1,7 @@
 package cj.aws.ec2.filter;
 
 import cj.aws.AWSFilter;
-import software.amazon.awssdk.services.elasticloadbalancingv2.model.LoadBalancer;
+import cj.aws.AWSResources;
 
 import javax.enterprise.context.Dependent;
 
@@ -10,16 +10,11 @@ import static cj.aws.AWSOutput.ELBV2Match;
 @Dependent
 public class FilterLoadBalancersV2 extends AWSFilter {
 
-    private boolean match(LoadBalancer resource) {
-        var lbName = resource.loadBalancerName();
-        return matchName(lbName);
-    }
-
     @Override
     public void apply() {
         var elb = aws().elbv2();
         var resources = elb.describeLoadBalancers().loadBalancers();
-        var matches = resources.stream().filter(this::match).toList();
+        var matches = matching(resources, AWSResources::of, configuredFilter());
         debug("Matched {}/{} load balancers (v2)",  matches.size(), resources.size());
         success(ELBV2Match, matches);
     }
@@ -1,6 +1,7 @@
 package cj.aws.ec2.filter;
 
 import cj.aws.AWSFilter;
+import cj.aws.AWSResources;
 import software.amazon.awssdk.services.ec2.model.NatGateway;
 
 import javax.enterprise.context.Dependent;
@@ -29,16 +30,6 @@ public class FilterNATGateways extends AWSFilter {
     }
 
     public boolean match(NatGateway nat) {
-        var match = true;
-        var prefix = aws().config().filterPrefix();
-        if (prefix.isPresent()){
-            match = nameMatches(nat, prefix.get());
-        }
-        return match;
-    }
-
-    private boolean nameMatches(NatGateway nat, String prefix) {
-        return nat.tags().stream()
-                .anyMatch(tag -> tag.key().equals("Name") && tag.value().startsWith(prefix));
+        return configuredFilter().test(AWSResources.of(nat));
     }
 }
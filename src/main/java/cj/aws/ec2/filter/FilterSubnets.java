@@ -2,8 +2,8 @@ package cj.aws.ec2.filter;
 
 import cj.aws.AWSFilter;
 import cj.aws.AWSInput;
+import cj.aws.AWSResources;
 import software.amazon.awssdk.services.ec2.model.DescribeSubnetsRequest;
-import software.amazon.awssdk.services.ec2.model.Subnet;
 
 import javax.enterprise.context.Dependent;
 
@@ -12,27 +12,16 @@ import static cj.aws.AWSOutput.SubnetMatch;
 @Dependent
 public class FilterSubnets extends AWSFilter {
 
-
-    private boolean match(Subnet net) {
-        var vpcId = getInputString(AWSInput.targetVPCId);
-        if (vpcId != null) {
-            return net.vpcId().equals(vpcId);
-        }else if (hasFilterPrefix()){
-            var match = net.tags()
-                    .stream()
-                    .anyMatch(tag ->
-                            tag.key().equals("Name") && matchName(tag.value()));
-            return match;
-        }else return true;
-    }
-
-
     @Override
     public void apply() {
         var ec2 = aws().ec2();
         var describeNets = DescribeSubnetsRequest.builder().build();
-        var nets = ec2.describeSubnets(describeNets).subnets().stream();
-        var matches = nets.filter(this::match).toList();
+        var nets = ec2.describeSubnets(describeNets).subnets();
+        // Every subnet of the target VPC goes, otherwise fall back to the configured filter
+        var filter = inputString(AWSInput.targetVPCId).isPresent()
+                ? vpcFilter()
+                : configuredFilter();
+        var matches = matching(nets, AWSResources::of, filter);
         success(SubnetMatch, matches);
     }
 }
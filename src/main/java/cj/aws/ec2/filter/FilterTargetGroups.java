@@ -1,7 +1,7 @@
 package cj.aws.ec2.filter;
 
 import cj.aws.AWSFilter;
-import software.amazon.awssdk.services.elasticloadbalancingv2.model.TargetGroup;
+import cj.aws.AWSResources;
 
 import javax.enterprise.context.Dependent;
 
@@ -9,20 +9,12 @@ import static cj.aws.AWSOutput.TargetGroupsMatch;
 
 @Dependent
 public class FilterTargetGroups extends AWSFilter {
-    private boolean match(TargetGroup resource) {
-        var prefix = aws().config().filterPrefix();
-        var match = true;
-        if (prefix.isPresent()) {
-            match = resource.targetGroupName().startsWith(prefix.get());
-        }
-        return match;
-    }
 
     @Override
     public void apply() {
         var elb = aws().elbv2();
         var resources = elb.describeTargetGroups().targetGroups();
-        var matches = resources.stream().filter(this::match).toList();
+        var matches = matching(resources, AWSResources::of, configuredFilter());
         success(TargetGroupsMatch, matches);
     }
 
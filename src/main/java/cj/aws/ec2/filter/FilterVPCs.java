@@ -2,6 +2,7 @@ package cj.aws.ec2.filter;
 
 import cj.aws.AWSFilter;
 import cj.aws.AWSInput;
+import cj.aws.AWSResources;
 import software.amazon.awssdk.services.ec2.model.DescribeVpcsRequest;
 import software.amazon.awssdk.services.ec2.model.Vpc;
 
@@ -19,22 +20,6 @@ public class FilterVPCs extends AWSFilter {
         success(VPCMatch, vpcs);
     }
 
-    private boolean matchVPCId(Vpc vpc){
-        return vpc.vpcId().equals(getTargetVpcId());
-    }
-
-    private String getTargetVpcId() {
-        var targetVpcId = getInputString(AWSInput.targetVPCId);
-        return targetVpcId;
-    }
-
-    private boolean matchName(Vpc vpc) {
-        var matchName = vpc.tags().stream()
-                .anyMatch(tag -> tag.key().equals("Name")
-                        && matchName(tag.value()));
-        return matchName;
-    }
-
     private List<Vpc> findAll(){
         var ec2 = aws().ec2();
         var request = DescribeVpcsRequest.builder().build();
@@ -44,13 +29,7 @@ public class FilterVPCs extends AWSFilter {
 
     protected List<Vpc> filterResources() {
         var resources = findAll();
-        var matches = resources.stream();
-        if (getTargetVpcId() != null)
-            matches = matches.filter(this::matchVPCId);
-        var prefix = aws().config().filterPrefix();
-        if (prefix.isPresent())
-            matches = matches.filter(this::matchName);
-        var result= matches.toList();
+        var result = matching(resources, AWSResources::of);
         debug("Matched {}/{} VPCs",  result.size(), resources.size());
         return result;
     }
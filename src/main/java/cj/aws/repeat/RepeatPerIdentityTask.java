@@ -32,10 +32,10 @@ public class RepeatPerIdentityTask extends BaseTask {
         var ids = aws.identities();
         var regions = submit(filterRegions)
                 .outputList(AWSOutput.RegionMatches, Region.class);
-        for (var id: ids){
+        forEachConcurrent(List.copyOf(ids), configuration().repeatConcurrency(query), id -> {
             debug("Submitting query {} as [{}]", query, id);
             submitQuery(query, regions, id);
-        }
+        });
     }
 
     private void submitQuery(List<String> query, List<Region> regionList, AWSIdentity id) {
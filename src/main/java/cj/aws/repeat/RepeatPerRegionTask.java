@@ -9,6 +9,7 @@ import software.amazon.awssdk.regions.Region;
 
 import javax.enterprise.context.Dependent;
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -29,14 +30,20 @@ public class RepeatPerRegionTask extends BaseTask {
         var ids = aws.identities();
         var regions = submit(filterRegions)
                 .outputList(AWSOutput.RegionMatches, Region.class);
+        var targets = new ArrayList<Target>();
         for (var id: ids){
             for (var region: regions){
-                debug("Repeating {} as [{}]@[{}]", query, id, region);
-                submitQuery(query, region, id);
+                targets.add(new Target(id, region));
             }
         }
+        forEachConcurrent(targets, configuration().repeatConcurrency(query), t -> {
+            debug("Repeating {} as [{}]@[{}]", query, t.id(), t.region());
+            submitQuery(query, t.region(), t.id());
+        });
     }
 
+    record Target(AWSIdentity id, Region region) {}
+
     private void submitQuery(List<String> query, Region region, AWSIdentity id) {
         tasks().submitQuery(query, Map.of(
                 targetRegion, region,
@@ -1,67 +1,86 @@
 package cj.aws.route53;
 
 import cj.aws.AWSFilter;
+import cj.aws.AWSResources;
+import cj.filter.ResourceFilter;
+import software.amazon.awssdk.services.route53.Route53Client;
+import software.amazon.awssdk.services.route53.model.HostedZone;
+import software.amazon.awssdk.services.route53.model.ListResourceRecordSetsRequest;
+import software.amazon.awssdk.services.route53.model.RRType;
 
 import javax.enterprise.context.Dependent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
+import static cj.aws.AWSInput.hostedZoneId;
+import static cj.aws.AWSOutput.RecordsMatch;
+
+/**
+ * Lists record sets of every hosted zone (or only the zone in hostedZoneId), zones in parallel,
+ * and matches them by record name against the configured filter.
+ * The apex SOA and NS records are never matched.
+ */
 @Dependent
 public class FilterRecords extends AWSFilter {
-    /*
-    @ConfigProperty(name = "tt.ocp.baseDomain", defaultValue = "redhat.com")
-    String baseDomain;
+    static final String HOSTED_ZONE_PREFIX = "/hostedzone/";
 
     @Override
-    public void runSafe() {
-        var r53 = aws().newRoute53Client(getRegionOrDefault());
-        r53.listHostedZones()
-                .hostedZones()
-                .stream()
-                .filter(this::match)
-                .forEach(this::filterRecords);
-    }
-
-    private void filterRecords(HostedZone hostedZone) {
-        var r53 = aws().newRoute53Client(getRegionOrDefault());
-        var listRecords = ListResourceRecordSetsRequest
-                .builder()
-                .hostedZoneId(hostedZone.id())
-                .build();
-        r53.listResourceRecordSetsPaginator(listRecords)
-                .resourceRecordSets()
-                .stream()
-                .filter(this::matchRecord)
-                .forEach(this::deleteRecord);
-        log().debug("Macthed {}/{} records", matched, filtered);
+    public void apply() {
+        var filter = configuredFilter();
+        if (filter == ResourceFilter.ALL) {
+            warn("No filter prefix or expression configured, not matching any records");
+            success(RecordsMatch, List.of());
+            return;
+        }
+        var r53 = aws().route53();
+        var zones = zones(r53);
+        var matches = Collections.synchronizedList(new ArrayList<ZoneRecord>());
+        forEachConcurrent(zones, maxConcurrency(), zone -> matches.addAll(filterZone(r53, zone, filter)));
+        debug("Matched {} records in {} hosted zones", matches.size(), zones.size());
+        success(RecordsMatch, List.copyOf(matches));
     }
 
-
-
-    private boolean matchRecord(ResourceRecordSet rrs) {
-        var name = rrs.name();
-        matchName(name);
+    private List<HostedZone> zones(Route53Client r53) {
+        var zones = throttled(() -> r53.listHostedZonesPaginator().hostedZones().stream().toList());
+        var zoneId = inputString(hostedZoneId);
+        if (zoneId.isEmpty()) return zones;
+        var id = zoneId(zoneId.get());
+        return zones.stream()
+                .filter(zone -> zoneId(zone.id()).equals(id))
+                .toList();
     }
 
-
-    private boolean match(HostedZone zone) {
-        if (baseDomain==null) {
-            log().trace("base domain not set");
-            return false;
-        }
-        var zoneName = zone.name();
-        var match = zoneName.startsWith(baseDomain);
-        log().trace("Found Hosted Zone {} {} ", mark(match), zoneName);
-        return match;
+    /**
+     * Strips the "/hostedzone/" prefix Route53 puts on zone ids, so both forms compare equal.
+     */
+    static String zoneId(String id) {
+        return id.startsWith(HOSTED_ZONE_PREFIX) ? id.substring(HOSTED_ZONE_PREFIX.length()) : id;
     }
 
-    @Override
-    protected Region getRegionOrDefault() {
-        return Region.AWS_GLOBAL;
+    private List<ZoneRecord> filterZone(Route53Client r53, HostedZone zone, ResourceFilter filter) {
+        var request = ListResourceRecordSetsRequest.builder()
+                .hostedZoneId(zone.id())
+                .build();
+        var records = throttled(() -> r53.listResourceRecordSetsPaginator(request)
+                .resourceRecordSets()
+                .stream()
+                .toList());
+        var matches = records.stream()
+                .map(rrs -> new ZoneRecord(zone.id(), zone.name(), rrs))
+                .filter(zr -> !isApexAuthority(zr))
+                .filter(zr -> {
+                    var match = filter.test(AWSResources.of(zr.recordSet()));
+                    trace("Found {} {} {}", matchMark(match), zr.recordSet().name(), zr.recordSet().typeAsString());
+                    return match;
+                })
+                .toList();
+        debug("Matched {}/{} records in {}", matches.size(), records.size(), zone.name());
+        return matches;
     }
 
-    @Override
-    protected String getResourceType() {
-        return "Records";
+    private boolean isApexAuthority(ZoneRecord zr) {
+        var type = zr.recordSet().type();
+        return zr.isApex() && (type == RRType.SOA || type == RRType.NS);
     }
-
-     */
 }
@@ -0,0 +1,12 @@
+package cj.aws.route53;
+
+import software.amazon.awssdk.services.route53.model.ResourceRecordSet;
+
+/**
+ * A record set together with the hosted zone it belongs to, as needed to change it.
+ */
+public record ZoneRecord(String hostedZoneId, String zoneName, ResourceRecordSet recordSet) {
+    public boolean isApex() {
+        return zoneName.equalsIgnoreCase(recordSet.name());
+    }
+}
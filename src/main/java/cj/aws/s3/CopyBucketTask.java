@@ -1,16 +1,265 @@
 package cj.aws.s3;
 
 import cj.aws.AWSWrite;
+import cj.fs.SortedWalk;
+import cj.fs.TaskFiles;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectTaggingRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.Tag;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyRequest;
 
 import javax.enterprise.context.Dependent;
 import javax.inject.Named;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
+import static cj.aws.AWSInput.s3Prefix;
+import static cj.aws.AWSInput.sourceBucketName;
+import static cj.aws.AWSInput.targetBucketName;
+
+/**
+ * Copies objects between buckets server-side.
+ * <p>
+ * The source is listed in shards (the top-level common prefixes, listed in parallel) and every
+ * object is copied with CopyObject, or with UploadPartCopy parts above cj.aws.s3.copy.multipartThresholdMb,
+ * on the shared io pool; when the concurrency limit is reached, the lister copies the object itself.
+ * Copied keys are appended to a checkpoint manifest so an interrupted copy resumes where it stopped.
+ * In diff mode (cj.aws.s3.copy.diff) keys already present in the target with the same size and ETag are skipped;
+ * the target is listed alongside the source and both sorted listings are merged, so neither is held in memory.
+ * Multipart copies get a different ETag than their source, so those are copied again unless the manifest has them.
+ */
 @Named("copy-bucket")
 @Dependent
 @SuppressWarnings("unused")
 public class CopyBucketTask extends AWSWrite {
+    static final long MB = 1024L * 1024L;
+
+    record Copy(S3Client s3,
+                String source,
+                String target,
+                CopyManifest manifest,
+                Executor copiers,
+                Semaphore inflight,
+                List<CompletableFuture<Void>> copies,
+                AtomicLong copied,
+                AtomicLong skipped,
+                Map<String, String> failed) {}
+
     @Override
     public void apply() {
-        throw new RuntimeException("Not implemented");
+        var source = inputString(sourceBucketName)
+                .or(() -> config().aws().s3CopySource())
+                .orElseThrow(() -> fail("Source bucket not set (cj.aws.s3.copy.source)"));
+        var target = inputString(targetBucketName)
+                .or(() -> config().aws().s3CopyTarget())
+                .orElseThrow(() -> fail("Target bucket not set (cj.aws.s3.copy.target)"));
+        var prefix = inputString(s3Prefix).orElse("");
+        var concurrency = maxConcurrency();
+        var manifestPath = TaskFiles.taskDir("copy-bucket")
+                .resolve(composeName(source, target, prefix.replaceAll("[^a-zA-Z0-9]", "_")) + ".manifest");
+        try (var manifest = CopyManifest.open(manifestPath)) {
+            if (manifest.size() > 0) {
+                info("Resuming copy from {} with {} keys already copied", manifestPath, manifest.size());
+            }
+            var copy = new Copy(aws().s3(), source, target, manifest, executors().io(),
+                    new Semaphore(concurrency), new ArrayList<>(),
+                    new AtomicLong(), new AtomicLong(), new ConcurrentHashMap<>());
+            var shards = listShards(copy, prefix);
+            debug("Copying s3://{}/{} to s3://{} in {} shards", source, prefix, target, shards.size() + 1);
+            forEachConcurrent(shards, concurrency, shard -> copyShard(copy, shard, false));
+            List<CompletableFuture<Void>> copies;
+            synchronized (copy.copies()) {
+                copies = List.copyOf(copy.copies());
+            }
+            CompletableFuture.allOf(copies.toArray(new CompletableFuture<?>[0])).join();
+            info("Copied {} objects, skipped {} unchanged, {} failed",
+                    copy.copied().get(), copy.skipped().get(), copy.failed().size());
+            copy.failed().forEach((key, reason) -> warn("Failed to copy {}: {}", key, reason));
+            if (!copy.failed().isEmpty())
+                throw fail("Failed to copy %d objects, run again to resume".formatted(copy.failed().size()));
+            manifest.delete();
+        }
+        success();
+    }
+
+    /**
+     * Copies the objects directly under the prefix and returns its common prefixes as shards.
+     */
+    private List<String> listShards(Copy copy, String prefix) {
+        return copyShard(copy, prefix, true);
+    }
+
+    private List<String> copyShard(Copy copy, String prefix, boolean topLevel) {
+        var targets = copyDiff() ? listTarget(copy, prefix, topLevel) : Collections.<S3Object>emptyIterator();
+        var target = targets.hasNext() ? targets.next() : null;
+        var request = ListObjectsV2Request.builder()
+                .bucket(copy.source())
+                .prefix(prefix);
+        if (topLevel) request.delimiter("/");
+        var shards = new ArrayList<String>();
+        for (var page : copy.s3().listObjectsV2Paginator(request.build())) {
+            page.commonPrefixes().forEach(cp -> shards.add(cp.prefix()));
+            for (var object : page.contents()) {
+                while (target != null && SortedWalk.compareCodePoints(target.key(), object.key()) < 0) {
+                    target = targets.hasNext() ? targets.next() : null;
+                }
+                var existing = target != null && target.key().equals(object.key()) ? target : null;
+                if (isCopied(copy, object, existing)) {
+                    copy.skipped().incrementAndGet();
+                } else {
+                    submitCopy(copy, object);
+                }
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * The target objects in key order, fetched page by page as the iterator advances.
+     */
+    private Iterator<S3Object> listTarget(Copy copy, String prefix, boolean topLevel) {
+        var request = ListObjectsV2Request.builder()
+                .bucket(copy.target())
+                .prefix(prefix);
+        if (topLevel) request.delimiter("/");
+        return copy.s3().listObjectsV2Paginator(request.build())
+                .contents()
+                .iterator();
+    }
+
+    private boolean isCopied(Copy copy, S3Object source, S3Object target) {
+        if (copy.manifest().contains(source.key(), source.eTag(), source.size())) return true;
+        return target != null
+                && target.size().equals(source.size())
+                && target.eTag().equals(source.eTag());
+    }
+
+    private void submitCopy(Copy copy, S3Object object) {
+        if (!copy.inflight().tryAcquire()) {
+            copyObject(copy, object);
+            return;
+        }
+        var future = CompletableFuture
+                .runAsync(() -> copyObject(copy, object), copy.copiers())
+                .whenComplete((r, e) -> copy.inflight().release());
+        synchronized (copy.copies()) {
+            copy.copies().add(future);
+        }
+    }
+
+    private void copyObject(Copy copy, S3Object object) {
+        var key = object.key();
+        try {
+            if (object.size() > config().aws().s3CopyMultipartThresholdMb() * MB) {
+                copyMultipart(copy, object);
+            } else {
+                var request = CopyObjectRequest.builder()
+                        .sourceBucket(copy.source())
+                        .sourceKey(key)
+                        .destinationBucket(copy.target())
+                        .destinationKey(key)
+                        .build();
+                throttled(() -> copy.s3().copyObject(request));
+            }
+            copy.manifest().add(key, object.eTag(), object.size());
+            copy.copied().incrementAndGet();
+            trace("Copied {}", key);
+        } catch (RuntimeException e) {
+            copy.failed().put(key, e.getMessage());
+        }
+    }
+
+    private void copyMultipart(Copy copy, S3Object object) {
+        var key = object.key();
+        var size = object.size();
+        var partSize = config().aws().s3CopyPartSizeMb() * MB;
+        var head = throttled(() -> copy.s3().headObject(HeadObjectRequest.builder()
+                .bucket(copy.source())
+                .key(key)
+                .build()));
+        var tags = throttled(() -> copy.s3().getObjectTagging(GetObjectTaggingRequest.builder()
+                .bucket(copy.source())
+                .key(key)
+                .build())).tagSet();
+        // CopyObject carries these over by default, UploadPartCopy does not
+        var create = CreateMultipartUploadRequest.builder()
+                .bucket(copy.target())
+                .key(key)
+                .contentType(head.contentType())
+                .contentEncoding(head.contentEncoding())
+                .contentDisposition(head.contentDisposition())
+                .contentLanguage(head.contentLanguage())
+                .cacheControl(head.cacheControl())
+                .expires(head.expires())
+                .metadata(head.metadata());
+        if (!tags.isEmpty()) create.tagging(tagging(tags));
+        var uploadId = throttled(() -> copy.s3().createMultipartUpload(create.build())).uploadId();
+        try {
+            var parts = new ArrayList<CompletedPart>();
+            var partNumber = 1;
+            for (long offset = 0; offset < size; offset += partSize, partNumber++) {
+                var last = Math.min(offset + partSize, size) - 1;
+                var request = UploadPartCopyRequest.builder()
+                        .sourceBucket(copy.source())
+                        .sourceKey(key)
+                        .destinationBucket(copy.target())
+                        .destinationKey(key)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .copySourceRange("bytes=%d-%d".formatted(offset, last))
+                        .build();
+                var eTag = throttled(() -> copy.s3().uploadPartCopy(request)).copyPartResult().eTag();
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+            }
+            var complete = CompleteMultipartUploadRequest.builder()
+                    .bucket(copy.target())
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build();
+            throttled(() -> copy.s3().completeMultipartUpload(complete));
+            debug("Copied {} in {} parts", key, parts.size());
+        } catch (RuntimeException e) {
+            copy.s3().abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(copy.target())
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+            throw e;
+        }
+    }
+
+    static String tagging(List<Tag> tags) {
+        return tags.stream()
+                .map(tag -> encode(tag.key()) + "=" + encode(tag.value()))
+                .collect(Collectors.joining("&"));
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+
+    private boolean copyDiff() {
+        return config().aws().s3CopyDiff();
     }
 }
@@ -0,0 +1,93 @@
+package cj.aws.s3;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only checkpoint of copied objects, one "key etag size" line each,
+ * so that an interrupted copy resumes where it stopped.
+ */
+public class CopyManifest implements AutoCloseable {
+    record Entry(String eTag, long size) {}
+
+    private final Path path;
+    private final Map<String, Entry> entries;
+    private final BufferedWriter writer;
+
+    private CopyManifest(Path path, Map<String, Entry> entries, BufferedWriter writer) {
+        this.path = path;
+        this.entries = entries;
+        this.writer = writer;
+    }
+
+    public static CopyManifest open(Path path) {
+        var entries = new HashMap<String, Entry>();
+        try {
+            if (Files.exists(path)) {
+                try (var lines = Files.lines(path, StandardCharsets.UTF_8)) {
+                    lines.forEach(line -> {
+                        var cols = line.split(" ");
+                        if (cols.length != 3) return;
+                        var key = URLDecoder.decode(cols[0], StandardCharsets.UTF_8);
+                        entries.put(key, new Entry(cols[1], Long.parseLong(cols[2])));
+                    });
+                }
+            }
+            var writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            return new CopyManifest(path, entries, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public synchronized boolean contains(String key, String eTag, long size) {
+        var entry = entries.get(key);
+        return entry != null && entry.size() == size && entry.eTag().equals(eTag);
+    }
+
+    public synchronized void add(String key, String eTag, long size) {
+        entries.put(key, new Entry(eTag, size));
+        try {
+            writer.write(URLEncoder.encode(key, StandardCharsets.UTF_8) + " " + eTag + " " + size);
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Removes the checkpoint once the copy is complete.
+     */
+    public synchronized void delete() {
+        close();
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -2,12 +2,21 @@ package cj.aws.s3;
 
 import cj.aws.AWSInput;
 import cj.aws.AWSWrite;
+import cj.spi.Task;
 import software.amazon.awssdk.services.s3.model.DeleteBucketRequest;
 
 import javax.enterprise.context.Dependent;
+import javax.inject.Inject;
 
 @Dependent
 public class DeleteBucket extends AWSWrite {
+    @Inject
+    PurgeBucket purgeBucket;
+
+    @Override
+    public Task getDependency() {
+        return delegate(purgeBucket);
+    }
 
     @Override
     public void apply() {
@@ -0,0 +1,101 @@
+package cj.aws.s3;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streams bytes to an S3 object through a multipart upload, holding at most one part in memory.
+ * Objects smaller than a part are sent with a single PutObject. {@link #abort()} discards an unfinished upload.
+ */
+public class MultipartUploadStream extends OutputStream {
+    public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final S3Client s3;
+    private final String bucket;
+    private final String key;
+    private final byte[] part;
+    private final List<CompletedPart> parts = new ArrayList<>();
+    private int count;
+    private long bytes;
+    private String uploadId;
+    private boolean closed;
+
+    public MultipartUploadStream(S3Client s3, String bucket, String key, int partSize) {
+        this.s3 = s3;
+        this.bucket = bucket;
+        this.key = key;
+        this.part = new byte[Math.max(MIN_PART_SIZE, partSize)];
+    }
+
+    @Override
+    public void write(int b) {
+        if (count == part.length) uploadPart();
+        part[count++] = (byte) b;
+        bytes++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        while (len > 0) {
+            if (count == part.length) uploadPart();
+            var n = Math.min(len, part.length - count);
+            System.arraycopy(b, off, part, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            bytes += n;
+        }
+    }
+
+    /**
+     * Bytes written so far.
+     */
+    public long size() {
+        return bytes;
+    }
+
+    private void uploadPart() {
+        if (uploadId == null) {
+            uploadId = s3.createMultipartUpload(b -> b.bucket(bucket).key(key)).uploadId();
+        }
+        var partNumber = parts.size() + 1;
+        var eTag = s3.uploadPart(b -> b.bucket(bucket).key(key).uploadId(uploadId).partNumber(partNumber),
+                RequestBody.fromBytes(Arrays.copyOf(part, count))).eTag();
+        parts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+        count = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            if (uploadId == null) {
+                s3.putObject(b -> b.bucket(bucket).key(key), RequestBody.fromBytes(Arrays.copyOf(part, count)));
+                return;
+            }
+            if (count > 0) uploadPart();
+            s3.completeMultipartUpload(b -> b.bucket(bucket).key(key).uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build()));
+        } catch (RuntimeException e) {
+            abort();
+            throw new IOException("Failed to upload s3://%s/%s".formatted(bucket, key), e);
+        }
+    }
+
+    public void abort() {
+        closed = true;
+        if (uploadId != null) {
+            s3.abortMultipartUpload(b -> b.bucket(bucket).key(key).uploadId(uploadId));
+            uploadId = null;
+        }
+    }
+}
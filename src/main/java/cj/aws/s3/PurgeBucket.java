@@ -0,0 +1,167 @@
+package cj.aws.s3;
+
+import cj.aws.AWSWrite;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectVersionsRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectVersionsResponse;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Error;
+
+import javax.enterprise.context.Dependent;
+import javax.inject.Named;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static cj.aws.AWSInput.s3Prefix;
+import static cj.aws.AWSInput.targetBucketName;
+
+/**
+ * Deletes every object version and delete marker in a bucket (or under s3Prefix).
+ * <p>
+ * The top level is listed with a "/" delimiter and each common prefix is then listed by its own
+ * lister in parallel. Listers hand batches of 1000 keys to DeleteObjects calls on the shared io pool, at most
+ * cj.aws.s3.maxInflightDeletes at a time; when all are in flight, the lister deletes the batch itself.
+ * Keys rejected with SlowDown or InternalError are retried with backoff.
+ */
+@Dependent
+@Named("aws-purge-bucket")
+public class PurgeBucket extends AWSWrite {
+    static final int DELETE_BATCH = 1000;
+    static final int MAX_ATTEMPTS = 8;
+    static final Set<String> RETRYABLE_CODES = Set.of("SlowDown", "InternalError", "ServiceUnavailable");
+
+    record Purge(S3Client s3,
+                 String bucket,
+                 Executor deleters,
+                 Semaphore inflight,
+                 List<CompletableFuture<Void>> batches,
+                 AtomicLong deleted,
+                 Map<String, String> failed) {}
+
+    @Override
+    public void apply() {
+        var bucket = getInputString(targetBucketName);
+        var prefix = inputString(s3Prefix).orElse("");
+        var maxInflight = config().aws().s3MaxInflightDeletes();
+        var start = System.nanoTime();
+        var purge = new Purge(aws().s3(),
+                bucket,
+                executors().io(),
+                new Semaphore(maxInflight),
+                new ArrayList<>(),
+                new AtomicLong(),
+                new ConcurrentHashMap<>());
+        var prefixes = listTopLevel(purge, prefix);
+        debug("Purging s3://{}/{} with {} prefix listers", bucket, prefix, prefixes.size());
+        forEachConcurrent(prefixes, maxConcurrency(), p -> list(purge, p, null));
+        List<CompletableFuture<Void>> batches;
+        synchronized (purge.batches()) {
+            batches = List.copyOf(purge.batches());
+        }
+        CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0])).join();
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+        var deleted = purge.deleted().get();
+        var rate = deleted * 1000 / Math.max(1, elapsed.toMillis());
+        info("Purged {} object versions from s3://{}/{} in {}s ({} keys/s)",
+                deleted, bucket, prefix, elapsed.toSeconds(), rate);
+        purge.failed().forEach((key, reason) -> warn("Failed to delete s3://{}/{}: {}", bucket, key, reason));
+        if (!purge.failed().isEmpty())
+            throw fail("Failed to delete %d object versions from %s".formatted(purge.failed().size(), bucket));
+        success();
+    }
+
+    /**
+     * Deletes the versions directly under the prefix and returns its common prefixes, to be listed in parallel.
+     */
+    private List<String> listTopLevel(Purge purge, String prefix) {
+        var prefixes = new ArrayList<String>();
+        list(purge, prefix, page -> page.commonPrefixes().forEach(cp -> prefixes.add(cp.prefix())));
+        return prefixes;
+    }
+
+    private void list(Purge purge, String prefix, Consumer<ListObjectVersionsResponse> onPage) {
+        var request = ListObjectVersionsRequest.builder()
+                .bucket(purge.bucket())
+                .prefix(prefix);
+        if (onPage != null) request.delimiter("/");
+        var batch = new ArrayList<ObjectIdentifier>(DELETE_BATCH);
+        for (var page : purge.s3().listObjectVersionsPaginator(request.build())) {
+            if (onPage != null) onPage.accept(page);
+            page.versions().forEach(v -> batch.add(id(v.key(), v.versionId())));
+            page.deleteMarkers().forEach(m -> batch.add(id(m.key(), m.versionId())));
+            while (batch.size() >= DELETE_BATCH) {
+                var head = new ArrayList<>(batch.subList(0, DELETE_BATCH));
+                batch.subList(0, DELETE_BATCH).clear();
+                submitDelete(purge, head);
+            }
+        }
+        if (!batch.isEmpty()) submitDelete(purge, batch);
+    }
+
+    private void submitDelete(Purge purge, List<ObjectIdentifier> ids) {
+        // Deleting on the lister when the pool is saturated keeps it from waiting on threads it may be holding
+        if (!purge.inflight().tryAcquire()) {
+            delete(purge, ids);
+            return;
+        }
+        var future = CompletableFuture
+                .runAsync(() -> delete(purge, ids), purge.deleters())
+                .whenComplete((r, e) -> purge.inflight().release());
+        synchronized (purge.batches()) {
+            purge.batches().add(future);
+        }
+    }
+
+    private void delete(Purge purge, List<ObjectIdentifier> ids) {
+        var pending = ids;
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            var request = DeleteObjectsRequest.builder()
+                    .bucket(purge.bucket())
+                    .delete(Delete.builder().objects(pending).quiet(true).build())
+                    .build();
+            var batch = pending;
+            var errors = throttled(() -> purge.s3().deleteObjects(request)).errors();
+            var retry = new ArrayList<ObjectIdentifier>();
+            for (var error : errors) {
+                if (RETRYABLE_CODES.contains(error.code()) && attempt < MAX_ATTEMPTS) {
+                    retry.add(id(error.key(), error.versionId()));
+                } else {
+                    purge.failed().put(key(error), error.code() + ": " + error.message());
+                }
+            }
+            purge.deleted().addAndGet(batch.size() - errors.size());
+            trace("Deleted {} keys from {}, {} errors", batch.size() - errors.size(), purge.bucket(), errors.size());
+            pending = retry;
+            if (!pending.isEmpty()) backoff(attempt);
+        }
+    }
+
+    private void backoff(int attempt) {
+        var ceiling = Math.min(20_000L, 200L << attempt);
+        try {
+            Thread.sleep(ceiling / 2 + (long) (Math.random() * ceiling / 2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw fail(e);
+        }
+    }
+
+    private static ObjectIdentifier id(String key, String versionId) {
+        return ObjectIdentifier.builder().key(key).versionId(versionId).build();
+    }
+
+    private static String key(S3Error error) {
+        return error.versionId() == null ? error.key() : error.key() + "?versionId=" + error.versionId();
+    }
+}
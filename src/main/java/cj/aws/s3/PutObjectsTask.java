@@ -2,6 +2,7 @@ package cj.aws.s3;
 
 import cj.aws.AWSWrite;
 import cj.fs.FSInput;
+import cj.fs.TaskFiles;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.transfer.s3.S3TransferManager;
 import software.amazon.awssdk.transfer.s3.model.UploadFileRequest;
@@ -9,10 +10,25 @@ import software.amazon.awssdk.transfer.s3.model.UploadFileRequest;
 import javax.enterprise.context.Dependent;
 import javax.inject.Named;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static cj.aws.AWSInput.s3Force;
 import static cj.aws.AWSInput.s3Prefix;
 import static cj.aws.AWSInput.targetBucketName;
+import static cj.aws.AWSOutput.S3ObjectsUploaded;
 
+/**
+ * Uploads files concurrently, at most cj.aws.s3.maxInflightUploads at a time.
+ * Files already uploaded to the same key with the same content are skipped (see {@link UploadManifest}),
+ * unless s3Force is set, as when a caller such as {@link SyncTask} has already decided what to upload.
+ * The uploaded paths are output as S3ObjectsUploaded.
+ */
 @Dependent
 @Named("aws-put-objects")
 public class PutObjectsTask extends AWSWrite {
@@ -21,18 +37,53 @@ public class PutObjectsTask extends AWSWrite {
         var bucketName = expectInputString(targetBucketName);
         var paths = inputList(FSInput.paths, Path.class);
         var prefix = inputString(s3Prefix).orElse("");
-        try(var s3tm = aws().s3tm()) {
+        var basePath = inputAs(FSInput.basePath, Path.class).orElse(null);
+        var inflight = new Semaphore(config().aws().s3MaxInflightUploads());
+        var uploads = new ArrayList<CompletableFuture<?>>();
+        var failed = new ConcurrentHashMap<Path, String>();
+        var uploaded = ConcurrentHashMap.<Path>newKeySet();
+        var skipped = new AtomicInteger();
+        var force = inputAs(s3Force, Boolean.class).orElse(false);
+        try (var manifest = force ? null : UploadManifest.open(manifestPath(bucketName));
+             var s3tm = aws().s3tm()) {
             debug("Putting {} files to {}/{}", paths.size(), bucketName, prefix);
-            paths.forEach(path -> upload(s3tm, bucketName, prefix, path));
-            debug("Put objects finished");
+            for (var path : paths) {
+                var key = key(prefix, basePath, path);
+                if (manifest != null && manifest.isUnchanged(key, path)) {
+                    skipped.incrementAndGet();
+                    debug("File {} unchanged in s3://{}/{}, skipping", path, bucketName, key);
+                    continue;
+                }
+                acquire(inflight);
+                // Hashing for the manifest reads the whole file, keep it off the SDK completion threads
+                uploads.add(upload(s3tm, bucketName, key, path)
+                        .whenComplete((r, e) -> inflight.release())
+                        .whenCompleteAsync((r, e) -> {
+                            if (e != null) {
+                                failed.put(path, e.getMessage());
+                                return;
+                            }
+                            try {
+                                if (manifest != null) manifest.add(key, path);
+                                uploaded.add(path);
+                                debug("File {} uploaded to s3://{}/{}", path, bucketName, key);
+                            } catch (RuntimeException ex) {
+                                error("Uploaded {} but failed to record it in the manifest", path, ex);
+                                failed.put(path, "Not recorded in the upload manifest: " + ex.getMessage());
+                            }
+                        }, executors().io()));
+            }
+            CompletableFuture.allOf(uploads.toArray(new CompletableFuture<?>[0]))
+                    .exceptionally(e -> null)
+                    .join();
         }
+        debug("Put objects finished: {} uploaded, {} unchanged, {} failed",
+                uploaded.size(), skipped.get(), failed.size());
+        output(S3ObjectsUploaded, List.copyOf(uploaded));
+        reportFailures(failed);
     }
 
-    private void upload(S3TransferManager s3tm, String bucket,String prefix, Path path) {
-        var key = path.getFileName().toFile().getName();
-        if (prefix != null){
-            key = prefix + "/" + key;
-        }
+    private CompletableFuture<?> upload(S3TransferManager s3tm, String bucket, String key, Path path) {
         var put = PutObjectRequest.builder()
                 .bucket(bucket)
                 .key(key)
@@ -41,8 +92,35 @@ public class PutObjectsTask extends AWSWrite {
                 .source(path)
                 .putObjectRequest(put)
                 .build();
+        return s3tm.uploadFile(upf).completionFuture();
+    }
+
+    private void reportFailures(Map<Path, String> failed) {
+        if (failed.isEmpty()) return;
+        failed.forEach((path, reason) -> warn("Failed to upload {}: {}", path, reason));
+        throw fail("Failed to upload %d files".formatted(failed.size()));
+    }
+
+    private void acquire(Semaphore inflight) {
+        try {
+            inflight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw fail(e);
+        }
+    }
+
+    /**
+     * The file name under the prefix, or its path relative to basePath if set.
+     */
+    static String key(String prefix, Path basePath, Path path) {
+        var name = basePath == null
+                ? path.getFileName().toString()
+                : basePath.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+        return prefix == null || prefix.isEmpty() ? name : prefix + "/" + name;
+    }
 
-        s3tm.uploadFile(upf);
-        debug("File {} uploaded to s3://{}/{}/{}", path, bucket,prefix, key);
+    public static Path manifestPath(String bucketName) {
+        return TaskFiles.taskDir("put-objects").resolve(bucketName + ".manifest");
     }
 }
@@ -0,0 +1,291 @@
+package cj.aws.s3;
+
+import cj.aws.AWSWrite;
+import cj.fs.FSInput;
+import cj.fs.GlobFilesTask;
+import cj.fs.SortedWalk;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
+
+import javax.enterprise.context.Dependent;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static cj.aws.AWSInput.s3Force;
+import static cj.aws.AWSInput.s3Prefix;
+import static cj.aws.AWSInput.targetBucketName;
+import static cj.aws.AWSOutput.S3ObjectsUploaded;
+import static cj.fs.FSInput.glob;
+import static cj.fs.FSInput.globPath;
+
+/**
+ * Syncs a local directory with an S3 prefix, in the direction of cj.aws.sync.direction (upload or download).
+ * <p>
+ * The local tree (see {@link SortedWalk}) and the paged remote listing are both visited in key order and
+ * merged, so neither listing is held in memory. Files whose size differs, or whose source is newer, are
+ * transferred in batches; with cj.aws.sync.deleteExtraneous, files missing from the source are deleted.
+ */
+@Dependent
+@Named("aws-sync")
+public class SyncTask extends AWSWrite {
+    static final int BATCH = 1000;
+
+    @Inject
+    Instance<PutObjectsTask> putObjects;
+
+    enum Direction {upload, download}
+
+    record Sync(S3Client s3,
+                S3TransferManager s3tm,
+                String bucket,
+                String prefix,
+                Path root,
+                Direction direction,
+                boolean deleteExtraneous,
+                List<Path> uploads,
+                List<String> deletes,
+                Semaphore inflight,
+                List<CompletableFuture<?>> downloads,
+                Map<String, String> failed,
+                AtomicLong transferred,
+                AtomicLong deleted,
+                AtomicLong unchanged) {}
+
+    @Override
+    public void apply() {
+        var bucket = inputString(targetBucketName)
+                .or(() -> config().aws().syncBucket())
+                .orElseThrow(() -> fail("Bucket not set (cj.aws.sync.bucket)"));
+        var prefix = inputString(s3Prefix)
+                .or(() -> config().aws().syncPrefix())
+                .map(p -> p.endsWith("/") || p.isEmpty() ? p : p + "/")
+                .orElse("");
+        var root = Path.of(inputString(globPath)
+                .or(() -> config().aws().syncLocalPath())
+                .orElseThrow(() -> fail("Local path not set (cj.aws.sync.localPath)")))
+                .toAbsolutePath();
+        var direction = Direction.valueOf(config().aws().syncDirection());
+        var matcher = GlobFilesTask.matcher(inputString(glob).orElse(null));
+        try (var s3 = aws().s3(); var s3tm = aws().s3tm()) {
+            var sync = new Sync(s3, s3tm, bucket, prefix, root, direction,
+                    config().aws().syncDeleteExtraneous(),
+                    new ArrayList<>(), new ArrayList<>(),
+                    new Semaphore(maxConcurrency()), new ArrayList<>(), new ConcurrentHashMap<>(),
+                    new AtomicLong(), new AtomicLong(), new AtomicLong());
+            debug("Syncing {} {} s3://{}/{}", root, direction == Direction.upload ? "to" : "from", bucket, prefix);
+            merge(sync, new SortedWalk(root, matcher), remote(sync, matcher));
+            flushUploads(sync);
+            flushDeletes(sync);
+            CompletableFuture.allOf(sync.downloads().toArray(new CompletableFuture<?>[0]))
+                    .exceptionally(e -> null)
+                    .join();
+            info("Synced {} {} s3://{}/{}: {} transferred, {} deleted, {} unchanged",
+                    root, direction == Direction.upload ? "to" : "from", bucket, prefix,
+                    sync.transferred().get(), sync.deleted().get(), sync.unchanged().get());
+            sync.failed().forEach((key, reason) -> warn("Failed to sync {}: {}", key, reason));
+            if (!sync.failed().isEmpty())
+                throw fail("Failed to sync %d files".formatted(sync.failed().size()));
+        }
+        success();
+    }
+
+    private void merge(Sync sync, Iterator<SortedWalk.Entry> locals, Iterator<S3Object> remotes) {
+        var local = locals.hasNext() ? locals.next() : null;
+        var remote = remotes.hasNext() ? remotes.next() : null;
+        while (local != null || remote != null) {
+            var cmp = local == null ? 1
+                    : remote == null ? -1
+                    : SortedWalk.compareCodePoints(local.key(), relativeKey(sync, remote));
+            if (cmp < 0) {
+                onlyLocal(sync, local);
+                local = locals.hasNext() ? locals.next() : null;
+            } else if (cmp > 0) {
+                onlyRemote(sync, remote);
+                remote = remotes.hasNext() ? remotes.next() : null;
+            } else {
+                both(sync, local, remote);
+                local = locals.hasNext() ? locals.next() : null;
+                remote = remotes.hasNext() ? remotes.next() : null;
+            }
+        }
+    }
+
+    private void onlyLocal(Sync sync, SortedWalk.Entry local) {
+        switch (sync.direction()) {
+            case upload -> upload(sync, local.path());
+            case download -> {
+                if (sync.deleteExtraneous()) deleteLocal(sync, local.path());
+            }
+        }
+    }
+
+    private void onlyRemote(Sync sync, S3Object remote) {
+        switch (sync.direction()) {
+            case upload -> {
+                if (sync.deleteExtraneous()) deleteRemote(sync, remote.key());
+            }
+            case download -> download(sync, remote);
+        }
+    }
+
+    private void both(Sync sync, SortedWalk.Entry local, S3Object remote) {
+        var sameSize = local.size() == remote.size();
+        var remoteModified = remote.lastModified().toEpochMilli();
+        var changed = switch (sync.direction()) {
+            case upload -> !sameSize || local.lastModified() > remoteModified;
+            case download -> !sameSize || remoteModified > local.lastModified();
+        };
+        if (!changed) {
+            sync.unchanged().incrementAndGet();
+        } else if (sync.direction() == Direction.upload) {
+            upload(sync, local.path());
+        } else {
+            download(sync, remote);
+        }
+    }
+
+    private Iterator<S3Object> remote(Sync sync, PathMatcher matcher) {
+        var request = ListObjectsV2Request.builder()
+                .bucket(sync.bucket())
+                .prefix(sync.prefix())
+                .build();
+        return sync.s3().listObjectsV2Paginator(request)
+                .contents()
+                .stream()
+                .filter(o -> !o.key().endsWith("/"))
+                .filter(o -> matcher == null || matcher.matches(localPath(sync, o)))
+                .iterator();
+    }
+
+    private void upload(Sync sync, Path path) {
+        sync.uploads().add(path);
+        if (sync.uploads().size() >= BATCH) flushUploads(sync);
+    }
+
+    /**
+     * Uploads the pending batch with {@link PutObjectsTask}, keyed by the path relative to the synced directory.
+     * The merge already decided these files changed, so the upload manifest is bypassed.
+     */
+    private void flushUploads(Sync sync) {
+        if (sync.uploads().isEmpty()) return;
+        var batch = List.copyOf(sync.uploads());
+        sync.uploads().clear();
+        var task = putObjects.get()
+                .withInput(targetBucketName, sync.bucket())
+                .withInput(s3Prefix, stripSlash(sync.prefix()))
+                .withInput(FSInput.basePath, sync.root())
+                .withInput(FSInput.paths, batch)
+                .withInput(s3Force, true);
+        try {
+            submit(task);
+        } catch (RuntimeException e) {
+            var uploaded = Set.copyOf(task.outputList(S3ObjectsUploaded, Path.class));
+            batch.stream()
+                    .filter(p -> !uploaded.contains(p))
+                    .forEach(p -> sync.failed().put(p.toString(), e.getMessage()));
+        }
+        sync.transferred().addAndGet(task.outputList(S3ObjectsUploaded, Path.class).size());
+    }
+
+    private void download(Sync sync, S3Object remote) {
+        var target = localPath(sync, remote);
+        try {
+            sync.inflight().acquire();
+            Files.createDirectories(target.getParent());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw fail(e);
+        } catch (IOException e) {
+            sync.inflight().release();
+            sync.failed().put(remote.key(), e.getMessage());
+            return;
+        }
+        var future = sync.s3tm()
+                .downloadFile(b -> b.destination(target)
+                        .getObjectRequest(r -> r.bucket(sync.bucket()).key(remote.key())))
+                .completionFuture()
+                .whenComplete((r, e) -> {
+                    sync.inflight().release();
+                    if (e != null) {
+                        sync.failed().put(remote.key(), e.getMessage());
+                        return;
+                    }
+                    sync.transferred().incrementAndGet();
+                    try {
+                        // Keep the remote time, so the next sync sees the file as unchanged
+                        Files.setLastModifiedTime(target, FileTime.from(remote.lastModified()));
+                    } catch (IOException ex) {
+                        debug("Failed to set modified time of {}: {}", target, ex.getMessage());
+                    }
+                });
+        synchronized (sync.downloads()) {
+            sync.downloads().add(future);
+        }
+    }
+
+    private void deleteLocal(Sync sync, Path path) {
+        try {
+            Files.delete(path);
+            sync.deleted().incrementAndGet();
+            trace("Deleted {}", path);
+        } catch (IOException e) {
+            sync.failed().put(path.toString(), e.getMessage());
+        }
+    }
+
+    private void deleteRemote(Sync sync, String key) {
+        sync.deletes().add(key);
+        if (sync.deletes().size() >= BATCH) flushDeletes(sync);
+    }
+
+    private void flushDeletes(Sync sync) {
+        if (sync.deletes().isEmpty()) return;
+        var ids = sync.deletes().stream()
+                .map(key -> ObjectIdentifier.builder().key(key).build())
+                .toList();
+        sync.deletes().clear();
+        var request = DeleteObjectsRequest.builder()
+                .bucket(sync.bucket())
+                .delete(Delete.builder().objects(ids).quiet(true).build())
+                .build();
+        var errors = throttled(() -> sync.s3().deleteObjects(request)).errors();
+        errors.forEach(error -> sync.failed().put(error.key(), error.code() + ": " + error.message()));
+        sync.deleted().addAndGet(ids.size() - errors.size());
+    }
+
+    private static String relativeKey(Sync sync, S3Object remote) {
+        return remote.key().substring(sync.prefix().length());
+    }
+
+    private static Path localPath(Sync sync, S3Object remote) {
+        var path = sync.root().resolve(relativeKey(sync, remote)).normalize();
+        if (!path.startsWith(sync.root()))
+            throw new UncheckedIOException(new IOException("Key escapes the sync directory: " + remote.key()));
+        return path;
+    }
+
+    private static String stripSlash(String prefix) {
+        return prefix.endsWith("/") ? prefix.substring(0, prefix.length() - 1) : prefix;
+    }
+}
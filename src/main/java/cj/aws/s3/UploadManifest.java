@@ -0,0 +1,132 @@
+package cj.aws.s3;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only record of uploaded files, one "key path size mtime sha256" line each.
+ * A file is unchanged if size and mtime match, or if only the mtime moved but the content hashes the same.
+ */
+public class UploadManifest implements AutoCloseable {
+    record Entry(Path path, long size, long mtime, String sha256) {}
+
+    private final Map<String, Entry> entries;
+    private final BufferedWriter writer;
+
+    private UploadManifest(Map<String, Entry> entries, BufferedWriter writer) {
+        this.entries = entries;
+        this.writer = writer;
+    }
+
+    public static UploadManifest open(Path path) {
+        var entries = new ConcurrentHashMap<String, Entry>();
+        try {
+            if (Files.exists(path)) {
+                try (var lines = Files.lines(path, StandardCharsets.UTF_8)) {
+                    lines.forEach(line -> {
+                        var cols = line.split(" ");
+                        if (cols.length != 5) return;
+                        entries.put(decode(cols[0]), new Entry(Path.of(decode(cols[1])),
+                                Long.parseLong(cols[2]), Long.parseLong(cols[3]), cols[4]));
+                    });
+                }
+            }
+            var writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            return new UploadManifest(entries, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public boolean isUnchanged(String key, Path path) {
+        var entry = entries.get(key);
+        if (entry == null) return false;
+        try {
+            var size = Files.size(path);
+            if (size != entry.size()) return false;
+            var mtime = Files.getLastModifiedTime(path).toMillis();
+            if (mtime == entry.mtime() && path.toAbsolutePath().equals(entry.path())) return true;
+            var sha256 = sha256(path);
+            if (!sha256.equals(entry.sha256())) return false;
+            append(key, new Entry(path.toAbsolutePath(), size, mtime, sha256));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Records the file as uploaded under the key.
+     */
+    public void add(String key, Path path) {
+        try {
+            append(key, new Entry(path.toAbsolutePath(),
+                    Files.size(path),
+                    Files.getLastModifiedTime(path).toMillis(),
+                    sha256(path)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized void append(String key, Entry entry) {
+        entries.put(key, entry);
+        try {
+            writer.write(String.join(" ",
+                    encode(key),
+                    encode(entry.path().toString()),
+                    Long.toString(entry.size()),
+                    Long.toString(entry.mtime()),
+                    entry.sha256()));
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String sha256(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            var digest = MessageDigest.getInstance("SHA-256");
+            var buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
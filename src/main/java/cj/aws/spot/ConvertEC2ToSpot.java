@@ -6,11 +6,10 @@ import software.amazon.awssdk.services.ec2.model.*;
 
 import javax.enterprise.context.Dependent;
 import javax.inject.Named;
+import java.time.Duration;
 
 import static cj.Utils.msToStr;
 import static cj.aws.AWSInput.targetInstanceId;
-import static java.util.concurrent.TimeUnit.MILLISECONDS;
-import static org.awaitility.Awaitility.await;
 
 @Named("convert-to-spot")
 @Dependent
@@ -96,9 +95,13 @@ public class ConvertEC2ToSpot extends AWSWrite {
     }
 
     private void waitInstanceStopped(String instanceId) {
-        await().atMost(config().largeAtMostTimeoutMs(), MILLISECONDS)
-                .pollInterval(config().largePollIntervalMs(), MILLISECONDS)
-                .until(() -> instanceState(instanceId, "STOPPED"));
+        waitInstanceState(instanceId, InstanceStateName.STOPPED);
+    }
+
+    private void waitInstanceState(String instanceId, InstanceStateName state) {
+        var atMost = Duration.ofMillis(config().largeAtMostTimeoutMs());
+        var instance = waiters().instanceState(aws(), instanceId, atMost, state).join();
+        debug("Instance {} state is {}", instanceId, instance.state().name());
     }
 
 
@@ -190,40 +193,15 @@ public class ConvertEC2ToSpot extends AWSWrite {
 
     private void awaitImageAvailable(String imageId) {
         var atMost = config().largeAtMostTimeoutMs();
-        var pollInterval = config().largePollIntervalMs();
-        debug("Awaiting for {} to be available ({}|{}).", imageId, msToStr(pollInterval), msToStr(atMost));
-        await().atMost(atMost, MILLISECONDS)
-                .pollInterval(pollInterval, MILLISECONDS)
-                .until(() -> imageIsAvailable(imageId));
-    }
-
-    private boolean imageIsAvailable(String imageId) {
-        var ec2 = aws().ec2();
-        var req = DescribeImagesRequest.builder()
-                .imageIds(imageId)
-                .build();
-        var images = ec2.describeImages(req).images();
-        if (images.size() == 1){
-            var image = images.get(0);
-            if (image.imageId().equals(imageId)){
-                var state = image.state();
-                debug("Image {} state is {}", imageId, state.name());
-                if (ImageState.AVAILABLE.equals(state)){
-                    return true;
-                }
-            }
-        }
-        debug("Image {} not yet ready", imageId);
-        return false;
+        debug("Awaiting for {} to be available ({}).", imageId, msToStr(atMost));
+        waiters().imageState(aws(), imageId, Duration.ofMillis(atMost), ImageState.AVAILABLE).join();
     }
 
 
 
 
     private void waitInstanceRunning(String newInstanceId) {
-        await().atMost(config().largeAtMostTimeoutMs(), MILLISECONDS)
-                .pollInterval(config().largePollIntervalMs(), MILLISECONDS)
-                .until(() -> instanceState(newInstanceId, "RUNNING"));
+        waitInstanceState(newInstanceId, InstanceStateName.RUNNING);
     }
 
     private String lookupInstanceStateName(String instanceId){
@@ -245,11 +223,6 @@ public class ConvertEC2ToSpot extends AWSWrite {
         return null;
     }
 
-    private boolean instanceState(String instanceId, String targetState) {
-        var instanceState = targetState != null
-                && targetState.equals(lookupInstanceStateName(instanceId));
-        return instanceState;
-    }
 
     
 
@@ -4,6 +4,8 @@ import cj.TaskDescription;
 import cj.TaskMaturity;
 import cj.aws.AWSWrite;
 import cj.aws.s3.AWSGetBucketTask;
+import cj.aws.s3.PutObjectsTask;
+import cj.aws.s3.UploadManifest;
 import cj.spi.Task;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.model.Bucket;
@@ -131,8 +133,14 @@ public class AWSTranscribeTask extends AWSWrite {
         var objKey = path.getFileName().toString();
         debug("putObject[{}] => s3://{}/{}/{}",path, bucketName, prefix, objKey);
 
-        try(var s3 = aws().s3()){                       
-            var sourceKey = prefix+objKey;
+        var sourceKey = prefix+objKey;
+        try(var manifest = UploadManifest.open(PutObjectsTask.manifestPath(bucketName));
+            var s3 = aws().s3()){
+            tc.sourceKey = objKey;
+            if (manifest.isUnchanged(sourceKey, path)) {
+                debug("{} unchanged in s3://{}/{}, skipping upload", path, bucketName, sourceKey);
+                return;
+            }
             Map<String, String> metadata = new HashMap<>();
             metadata.put("x-amz-meta-source", "cloud-janitor");
             var req = PutObjectRequest.builder()
@@ -140,16 +148,10 @@ public class AWSTranscribeTask extends AWSWrite {
                 .key(sourceKey)
                 .metadata(metadata)
                 .build();
-            byte[] bytes = Files.readAllBytes(path);
-            var res = s3.putObject(req, RequestBody.fromBytes(bytes));
+            var res = s3.putObject(req, RequestBody.fromFile(path));
             var etag = res.eTag();
-            /* sounds good, doesnt work
-            var upload = s3.uploadFile(b -> b.source(path)
-                    .putObjectRequest(r -> r.bucket(bucketName).key(sourceKey) ) );
-            var completeUpload = upload.completionFuture().join();
-             */
-            var objUrl = "s3://%s/%s%s".formatted(bucketName, prefix, objKey);       
-            tc.sourceKey = objKey;
+            manifest.add(sourceKey, path);
+            var objUrl = "s3://%s/%s%s".formatted(bucketName, prefix, objKey);
             debug("Uploaded {} as {}: etag {}", path, objUrl, etag);
         }catch(Exception ex){
             throw fail("Failed to put object to S3", ex);
@@ -0,0 +1,295 @@
+package cj.filter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static cj.filter.ResourceFilter.*;
+
+/**
+ * Compiles filter expressions into {@link ResourceFilter} trees.
+ * <p>
+ * Conditions are {@code field op value}, combined with {@code and}, {@code or}, {@code not} and parentheses:
+ * <pre>
+ *   name ^= [ci-, pr-] and tag:env = test and not state = terminated and age > 2d
+ * </pre>
+ * Fields: {@code name}, {@code id}, {@code state}, {@code vpc}, {@code type}, {@code tag:KEY} and {@code age}.
+ * Operators: {@code =}, {@code !=}, {@code ^=} (prefix), {@code ~} (glob), {@code =~} (regex),
+ * and {@code >}, {@code <} for age, with values such as {@code 30m}, {@code 12h}, {@code 7d} or {@code 2w}.
+ * Prefix conditions on the same field joined by {@code or} share a single {@link PrefixTrie}.
+ */
+public class FilterExpression {
+    private static final Pattern DURATION = Pattern.compile("(\\d+)([smhdw])");
+    private static final List<String> OPERATORS = List.of("!=", "^=", "=~", ">=", "<=", "=", "~", ">", "<");
+
+    private final String source;
+    private final List<String> tokens;
+    private final Instant now;
+    private int pos = 0;
+
+    private FilterExpression(String source, Instant now) {
+        this.source = source;
+        this.tokens = tokenize(source);
+        this.now = now;
+    }
+
+    public static ResourceFilter compile(String expression) {
+        return compile(expression, Instant.now());
+    }
+
+    public static ResourceFilter compile(String expression, Instant now) {
+        if (expression == null || expression.isBlank()) return ALL;
+        var parser = new FilterExpression(expression, now);
+        var result = parser.parseOr();
+        if (parser.pos < parser.tokens.size()) {
+            throw parser.invalid("unexpected token '" + parser.peek() + "'");
+        }
+        return result;
+    }
+
+    private ResourceFilter parseOr() {
+        var operands = new ArrayList<ResourceFilter>();
+        operands.add(parseAnd());
+        while (acceptKeyword("or")) {
+            operands.add(parseAnd());
+        }
+        if (operands.size() == 1) return operands.get(0);
+        return new Or(mergePrefixes(operands));
+    }
+
+    private ResourceFilter parseAnd() {
+        var operands = new ArrayList<ResourceFilter>();
+        operands.add(parseUnary());
+        while (acceptKeyword("and")) {
+            operands.add(parseUnary());
+        }
+        if (operands.size() == 1) return operands.get(0);
+        return new And(List.copyOf(operands));
+    }
+
+    private ResourceFilter parseUnary() {
+        if (acceptKeyword("not")) {
+            return new Not(parseUnary());
+        }
+        if (accept("(")) {
+            var inner = parseOr();
+            expect(")");
+            return inner;
+        }
+        return parseCondition();
+    }
+
+    private ResourceFilter parseCondition() {
+        var fieldName = next("field");
+        var op = next("operator");
+        if (!OPERATORS.contains(op)) {
+            throw invalid("unknown operator '" + op + "'");
+        }
+        var values = parseValues();
+        if ("age".equalsIgnoreCase(fieldName)) {
+            return ageCondition(op, values);
+        }
+        var field = field(fieldName);
+        return switch (op) {
+            case "=" -> anyOf(values.stream()
+                    .map(v -> (ResourceFilter) new Equals(field, v, field == Field.state))
+                    .toList());
+            case "!=" -> new Not(anyOf(values.stream()
+                    .map(v -> (ResourceFilter) new Equals(field, v, field == Field.state))
+                    .toList()));
+            case "^=" -> ResourceFilter.prefix(field, values);
+            case "~" -> anyOf(values.stream()
+                    .map(v -> (ResourceFilter) new Matches(field, globToRegex(v), true))
+                    .toList());
+            case "=~" -> anyOf(values.stream()
+                    .map(v -> (ResourceFilter) new Matches(field, compileRegex(v), false))
+                    .toList());
+            default -> throw invalid("operator '" + op + "' only applies to age");
+        };
+    }
+
+    private ResourceFilter ageCondition(String op, List<String> values) {
+        if (values.size() != 1) throw invalid("age expects a single duration");
+        var cutoff = now.minus(duration(values.get(0)));
+        return switch (op) {
+            case ">", ">=" -> new CreatedBefore(cutoff, true);
+            case "<", "<=" -> new CreatedBefore(cutoff, false);
+            default -> throw invalid("age only supports > and <");
+        };
+    }
+
+    private List<String> parseValues() {
+        if (!accept("[")) {
+            return List.of(unquote(next("value")));
+        }
+        var values = new ArrayList<String>();
+        if (accept("]")) return values;
+        do {
+            values.add(unquote(next("value")));
+        } while (accept(","));
+        expect("]");
+        return values;
+    }
+
+    private Field field(String name) {
+        if (name.startsWith("tag:") && name.length() > 4) {
+            return Field.tag(name.substring(4));
+        }
+        return switch (name.toLowerCase()) {
+            case "name" -> Field.name;
+            case "id" -> Field.id;
+            case "state" -> Field.state;
+            case "vpc" -> Field.vpc;
+            case "type" -> Field.type;
+            default -> throw invalid("unknown field '" + name + "'");
+        };
+    }
+
+    private static ResourceFilter anyOf(List<ResourceFilter> filters) {
+        return filters.size() == 1 ? filters.get(0) : new Or(filters);
+    }
+
+    private static List<ResourceFilter> mergePrefixes(List<ResourceFilter> operands) {
+        var prefixesByField = new LinkedHashMap<Field, List<String>>();
+        var result = new ArrayList<ResourceFilter>();
+        for (var op : operands) {
+            if (op instanceof Prefix p) {
+                prefixesByField.computeIfAbsent(p.field(), f -> new ArrayList<>())
+                        .addAll(p.prefixes().prefixes());
+            } else {
+                result.add(op);
+            }
+        }
+        prefixesByField.forEach((field, prefixes) -> result.add(0, ResourceFilter.prefix(field, prefixes)));
+        return List.copyOf(result);
+    }
+
+    private Duration duration(String value) {
+        var matcher = DURATION.matcher(value);
+        if (!matcher.matches()) throw invalid("invalid duration '" + value + "'");
+        var amount = Long.parseLong(matcher.group(1));
+        return switch (matcher.group(2)) {
+            case "s" -> Duration.ofSeconds(amount);
+            case "m" -> Duration.ofMinutes(amount);
+            case "h" -> Duration.ofHours(amount);
+            case "d" -> Duration.ofDays(amount);
+            default -> Duration.ofDays(amount * 7);
+        };
+    }
+
+    private Pattern compileRegex(String regex) {
+        try {
+            return Pattern.compile(regex);
+        } catch (Exception e) {
+            throw invalid("invalid regex '" + regex + "'");
+        }
+    }
+
+    static Pattern globToRegex(String glob) {
+        var regex = new StringBuilder();
+        var literal = new StringBuilder();
+        for (var c : glob.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (!literal.isEmpty()) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (!literal.isEmpty()) regex.append(Pattern.quote(literal.toString()));
+        return Pattern.compile(regex.toString());
+    }
+
+    /* Tokenizer */
+
+    private static List<String> tokenize(String source) {
+        var tokens = new ArrayList<String>();
+        int i = 0;
+        int n = source.length();
+        while (i < n) {
+            var c = source.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if ("()[],".indexOf(c) >= 0) {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else if (c == '\'' || c == '"') {
+                int end = source.indexOf(c, i + 1);
+                if (end < 0) throw new IllegalArgumentException("Invalid filter expression, unterminated quote: " + source);
+                tokens.add(source.substring(i, end + 1));
+                i = end + 1;
+            } else if (operatorAt(source, i) != null) {
+                var op = operatorAt(source, i);
+                tokens.add(op);
+                i += op.length();
+            } else {
+                int start = i;
+                while (i < n
+                        && !Character.isWhitespace(source.charAt(i))
+                        && "()[],".indexOf(source.charAt(i)) < 0
+                        && operatorAt(source, i) == null) {
+                    i++;
+                }
+                tokens.add(source.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+
+    private static String operatorAt(String source, int i) {
+        for (var op : OPERATORS) {
+            if (source.startsWith(op, i)) return op;
+        }
+        return null;
+    }
+
+    private static String unquote(String token) {
+        if (token.length() >= 2
+                && (token.startsWith("'") && token.endsWith("'")
+                || token.startsWith("\"") && token.endsWith("\""))) {
+            return token.substring(1, token.length() - 1);
+        }
+        return token;
+    }
+
+    private String peek() {
+        return pos < tokens.size() ? tokens.get(pos) : null;
+    }
+
+    private String next(String expected) {
+        var token = peek();
+        if (token == null) throw invalid("expected " + expected);
+        pos++;
+        return token;
+    }
+
+    private boolean accept(String token) {
+        if (token.equals(peek())) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        if (keyword.equalsIgnoreCase(peek())) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) throw invalid("expected '" + token + "'");
+    }
+
+    private IllegalArgumentException invalid(String reason) {
+        return new IllegalArgumentException("Invalid filter expression [%s]: %s".formatted(source, reason));
+    }
+}
@@ -0,0 +1,78 @@
+package cj.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Matches a string against many prefixes in a single pass over its characters.
+ */
+public class PrefixTrie {
+    private final Node root = new Node();
+    private final List<String> prefixes = new ArrayList<>();
+
+    public static PrefixTrie of(Collection<String> prefixes) {
+        var trie = new PrefixTrie();
+        prefixes.forEach(trie::add);
+        return trie;
+    }
+
+    public void add(String prefix) {
+        if (prefix == null) return;
+        var node = root;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = node.childOrCreate(prefix.charAt(i));
+        }
+        if (!node.terminal) {
+            node.terminal = true;
+            prefixes.add(prefix);
+        }
+    }
+
+    public boolean matchesAnyPrefix(CharSequence value) {
+        if (value == null) return false;
+        var node = root;
+        if (node.terminal) return true;
+        for (int i = 0; i < value.length(); i++) {
+            node = node.child(value.charAt(i));
+            if (node == null) return false;
+            if (node.terminal) return true;
+        }
+        return false;
+    }
+
+    public List<String> prefixes() {
+        return List.copyOf(prefixes);
+    }
+
+    public boolean isEmpty() {
+        return prefixes.isEmpty();
+    }
+
+    /* Children are kept in small parallel arrays, prefixes rarely fan out much. */
+    static final class Node {
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        boolean terminal;
+
+        Node child(char c) {
+            var ks = keys;
+            for (int i = 0; i < ks.length; i++) {
+                if (ks[i] == c) return children[i];
+            }
+            return null;
+        }
+
+        Node childOrCreate(char c) {
+            var existing = child(c);
+            if (existing != null) return existing;
+            var node = new Node();
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = c;
+            children[children.length - 1] = node;
+            return node;
+        }
+    }
+}
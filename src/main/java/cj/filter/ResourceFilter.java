@@ -0,0 +1,132 @@
+package cj.filter;
+
+import cj.CloudResourceRecord;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled predicate tree over {@link CloudResourceRecord}.
+ * Build once (see {@link FilterExpression}), then test as many resources as needed.
+ */
+public interface ResourceFilter {
+    ResourceFilter ALL = new All();
+
+    boolean test(CloudResourceRecord resource);
+
+    default ResourceFilter and(ResourceFilter other) {
+        if (this == ALL) return other;
+        if (other == null || other == ALL) return this;
+        return new And(List.of(this, other));
+    }
+
+    /**
+     * Resource attribute addressed by an expression, such as "name" or "tag:Name".
+     */
+    record Field(String label, Function<CloudResourceRecord, String> accessor) {
+        public static final Field name = new Field("name", CloudResourceRecord::name);
+        public static final Field id = new Field("id", CloudResourceRecord::id);
+        public static final Field state = new Field("state", CloudResourceRecord::state);
+        public static final Field vpc = new Field("vpc", CloudResourceRecord::vpcId);
+        public static final Field type = new Field("type", r -> r.type() == null ? null : r.type().toString());
+
+        public static Field tag(String key) {
+            return new Field("tag:" + key, r -> r.tag(key));
+        }
+
+        String get(CloudResourceRecord resource) {
+            return accessor.apply(resource);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Field f && f.label.equals(label);
+        }
+
+        @Override
+        public int hashCode() {
+            return label.hashCode();
+        }
+    }
+
+    record All() implements ResourceFilter {
+        @Override
+        public boolean test(CloudResourceRecord resource) {
+            return true;
+        }
+    }
+
+    record And(List<ResourceFilter> operands) implements ResourceFilter {
+        @Override
+        public boolean test(CloudResourceRecord resource) {
+            for (var op : operands) {
+                if (!op.test(resource)) return false;
+            }
+            return true;
+        }
+    }
+
+    record Or(List<ResourceFilter> operands) implements ResourceFilter {
+        @Override
+        public boolean test(CloudResourceRecord resource) {
+            for (var op : operands) {
+                if (op.test(resource)) return true;
+            }
+            return false;
+        }
+    }
+
+    record Not(ResourceFilter operand) implements ResourceFilter {
+        @Override
+        public boolean test(CloudResourceRecord resource) {
+            return !operand.test(resource);
+        }
+    }
+
+    record Equals(Field field, String value, boolean ignoreCase) implements ResourceFilter {
+        @Override
+        public boolean test(CloudResourceRecord resource) {
+            var actual = field.get(resource);
+            if (actual == null) return false;
+            return ignoreCase ? actual.equalsIgnoreCase(value) : actual.equals(value);
+        }
+    }
+
+    record Prefix(Field field, PrefixTrie prefixes) implements ResourceFilter {
+        @Override
+        public boolean test(CloudResourceRecord resource) {
+            return prefixes.matchesAnyPrefix(field.get(resource));
+        }
+    }
+
+    record Matches(Field field, Pattern pattern, boolean fullMatch) implements ResourceFilter {
+        @Override
+        public boolean test(CloudResourceRecord resource) {
+            var actual = field.get(resource);
+            if (actual == null) return false;
+            var matcher = pattern.matcher(actual);
+            return fullMatch ? matcher.matches() : matcher.find();
+        }
+    }
+
+    /**
+     * Compares the creation time against a cutoff fixed at compile time,
+     * so "age > 7d" becomes "created before (now - 7d)".
+     */
+    record CreatedBefore(Instant cutoff, boolean before) implements ResourceFilter {
+        @Override
+        public boolean test(CloudResourceRecord resource) {
+            var created = resource.createTime();
+            if (created == null) return false;
+            return before == created.isBefore(cutoff);
+        }
+    }
+
+    static ResourceFilter prefix(Field field, List<String> prefixes) {
+        Objects.requireNonNull(field);
+        return new Prefix(field, PrefixTrie.of(prefixes));
+    }
+}
@@ -5,5 +5,6 @@ import cj.Input;
 public enum FSInput implements Input {
     glob,
     globPath,
-    extension, paths
+    extension, paths,
+    basePath
 }
\ No newline at end of file
@@ -41,16 +41,15 @@ public class GlobFilesTask extends BaseTask {
         return visitor.result;
     }
 
+    public static PathMatcher matcher(String globIn) {
+        return globIn == null ? null : FileSystems.getDefault().getPathMatcher("glob:" + globIn);
+    }
+
     class GlobVisitor extends SimpleFileVisitor<Path>{
         final PathMatcher pathMatcher;
         private final List<Path> result = new ArrayList<>();
         public GlobVisitor(String globIn){
-            var globIn1 = "glob:" + globIn;
-
-
-            this.pathMatcher = globIn != null ?
-                    FileSystems.getDefault().getPathMatcher(globIn1) :
-                    null;
+            this.pathMatcher = matcher(globIn);
         }
 
 
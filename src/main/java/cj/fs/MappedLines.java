@@ -0,0 +1,167 @@
+package cj.fs;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Splits a file into line-aligned chunks that are memory-mapped and scanned independently,
+ * so each chunk can be processed on its own core.
+ * <p>
+ * Lines are handed out as a reused {@link Line} view over the mapped bytes; no String is
+ * created unless {@link Line#toString()} is called.
+ */
+public final class MappedLines {
+    private MappedLines() {
+    }
+
+    public record Chunk(Path file, long start, long end) {
+        public MappedByteBuffer map() {
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Visits every line in the chunk. The line is only valid during the call.
+         */
+        public void forEachLine(Consumer<Line> consumer) {
+            forEachLine(map(), consumer);
+        }
+
+        /**
+         * Visits every line of this chunk, already mapped with {@link #map()}.
+         */
+        public void forEachLine(MappedByteBuffer mapped, Consumer<Line> consumer) {
+            var line = new Line(mapped, start);
+            var lineStart = 0;
+            var limit = mapped.limit();
+            for (int i = 0; i < limit; i++) {
+                if (mapped.get(i) == '\n') {
+                    consumer.accept(line.set(lineStart, i, i + 1));
+                    lineStart = i + 1;
+                }
+            }
+            if (lineStart < limit) consumer.accept(line.set(lineStart, limit, limit));
+        }
+    }
+
+    /**
+     * Chunks of about chunkSize bytes from offset to the end of the file, each ending after a newline.
+     */
+    public static List<Chunk> chunks(Path file, long offset, long chunkSize) {
+        if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Chunk size must be between 1 and " + Integer.MAX_VALUE);
+        var chunks = new ArrayList<Chunk>();
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var size = channel.size();
+            var probe = ByteBuffer.allocate(8192);
+            var start = offset;
+            while (start < size) {
+                var end = Math.min(size, start + chunkSize);
+                if (end < size) end = afterNewline(channel, probe, end, size);
+                chunks.add(new Chunk(file, start, end));
+                start = end;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return chunks;
+    }
+
+    private static long afterNewline(FileChannel channel, ByteBuffer probe, long from, long size) throws IOException {
+        var position = from;
+        while (position < size) {
+            probe.clear();
+            var read = channel.read(probe, position);
+            if (read <= 0) break;
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') return position + i + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * A line of the mapped chunk, as a CharSequence of its bytes (one char per byte, which is
+     * enough to scan for ASCII shapes such as timestamps). {@link #toString()} decodes it as UTF-8.
+     */
+    public static final class Line implements CharSequence {
+        private final MappedByteBuffer bytes;
+        private final long base;
+        private int start;
+        private int end;
+        private int next;
+
+        Line(MappedByteBuffer bytes, long base) {
+            this.bytes = bytes;
+            this.base = base;
+        }
+
+        Line set(int start, int end, int next) {
+            this.start = start;
+            this.end = end > start && bytes.get(end - 1) == '\r' ? end - 1 : end;
+            this.next = next;
+            return this;
+        }
+
+        /**
+         * File offset just after the line and its newline.
+         */
+        public long endOffset() {
+            return base + next;
+        }
+
+        public boolean isBlank() {
+            for (int i = start; i < end; i++) {
+                var b = bytes.get(i);
+                if (b != ' ' && b != '\t') return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes.get(start + index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return toString(from, to);
+        }
+
+        /**
+         * Decodes at most maxBytes of the line.
+         */
+        public String toString(int maxBytes) {
+            return toString(0, Math.min(length(), maxBytes));
+        }
+
+        private String toString(int from, int to) {
+            var copy = new byte[to - from];
+            bytes.get(start + from, copy);
+            return new String(copy, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String toString() {
+            return toString(0, length());
+        }
+    }
+}
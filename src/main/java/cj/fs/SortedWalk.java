@@ -0,0 +1,106 @@
+package cj.fs;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily walks a directory tree, yielding regular files ordered by their relative "/"-separated path
+ * in code point order, the same order S3 lists keys in.
+ * <p>
+ * Directories sort as "name/", so that "a/b" comes after "a-c" and before "a0". Only one listing per
+ * level is held in memory.
+ */
+public class SortedWalk implements Iterator<SortedWalk.Entry> {
+    public static final Comparator<String> CODE_POINT_ORDER = SortedWalk::compareCodePoints;
+
+    public record Entry(String key, Path path, long size, long lastModified) {}
+
+    record Node(String name, Path path, BasicFileAttributes attrs) {}
+
+    record Level(String prefix, Iterator<Node> nodes) {}
+
+    private final Path root;
+    private final PathMatcher matcher;
+    private final Deque<Level> stack = new ArrayDeque<>();
+    private Entry next;
+
+    public SortedWalk(Path root, PathMatcher matcher) {
+        this.root = root;
+        this.matcher = matcher;
+        if (Files.isDirectory(root)) stack.push(new Level("", list(root)));
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !stack.isEmpty()) {
+            var level = stack.peek();
+            if (!level.nodes().hasNext()) {
+                stack.pop();
+                continue;
+            }
+            var node = level.nodes().next();
+            if (node.attrs().isDirectory()) {
+                stack.push(new Level(level.prefix() + node.name(), list(node.path())));
+            } else if (node.attrs().isRegularFile() && (matcher == null || matcher.matches(node.path()))) {
+                next = new Entry(level.prefix() + node.name(),
+                        node.path(),
+                        node.attrs().size(),
+                        node.attrs().lastModifiedTime().toMillis());
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Entry next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        var result = next;
+        next = null;
+        return result;
+    }
+
+    private Iterator<Node> list(Path dir) {
+        var nodes = new ArrayList<Node>();
+        try (var entries = Files.newDirectoryStream(dir)) {
+            for (var path : entries) {
+                var attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                var name = path.getFileName().toString();
+                nodes.add(new Node(attrs.isDirectory() ? name + "/" : name, path, attrs));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        nodes.sort(Comparator.comparing(Node::name, CODE_POINT_ORDER));
+        return nodes.iterator();
+    }
+
+    public Path root() {
+        return root;
+    }
+
+    /**
+     * Compares by unicode code point, which matches the UTF-8 byte order S3 uses (String.compareTo does not,
+     * for characters outside the BMP).
+     */
+    public static int compareCodePoints(String a, String b) {
+        int i = 0, j = 0;
+        while (i < a.length() && j < b.length()) {
+            var ca = a.codePointAt(i);
+            var cb = b.codePointAt(j);
+            if (ca != cb) return Integer.compare(ca, cb);
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+}
@@ -328,6 +328,13 @@ public class TaskFiles {
         return resolveDir(applicationDir(), "tasks");
     }
 
+    /**
+     * Line-aligned, memory-mapped chunks of the file from offset, for parallel processing (see {@link MappedLines}).
+     */
+    public static List<MappedLines.Chunk> mapLines(Path file, long offset, long chunkSize) {
+        return MappedLines.chunks(file, offset, chunkSize);
+    }
+
     public static Path taskDir(Task task, String context){
         return resolveDir(taskDir(task), context);
     }
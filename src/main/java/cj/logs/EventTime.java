@@ -0,0 +1,35 @@
+package cj.logs;
+
+import cj.TimeUtils;
+import cj.TimestampScanner;
+
+import java.time.LocalDate;
+
+/**
+ * Assigns each event a timestamp: its own if it has one, the previous one if not, and never
+ * an earlier one than the previous, since CloudWatch requires ascending batches.
+ */
+class EventTime {
+    private long time;
+    private long clamped;
+
+    EventTime(LogOffsets.Offset start, LocalDate baseDay) {
+        this.time = start.timestamp() >= 0
+                ? start.timestamp()
+                : TimeUtils.toTimestamp(TimeUtils.atStartOfDay(baseDay));
+    }
+
+    long next(long parsed) {
+        if (parsed == TimestampScanner.NONE) return time;
+        if (parsed < time) {
+            clamped++;
+            return time;
+        }
+        time = parsed;
+        return time;
+    }
+
+    long clamped() {
+        return clamped;
+    }
+}
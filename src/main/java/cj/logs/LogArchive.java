@@ -0,0 +1,80 @@
+package cj.logs;
+
+import cj.TimestampScanner;
+import cj.fs.MappedLines;
+import cj.fs.TaskFiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzips a log file into a stream as a sequence of gzip members, one per line-aligned block.
+ * Blocks are compressed in parallel on the given pool (up to {@code window} ahead) and written in order;
+ * concatenated members are a valid gzip file. The time range of the file is collected in the same pass.
+ */
+public class LogArchive {
+    public record Range(long from, long to, long bytes) {
+        static final Range EMPTY = new Range(Long.MAX_VALUE, Long.MIN_VALUE, 0);
+
+        Range merge(Range other) {
+            return new Range(Math.min(from, other.from), Math.max(to, other.to), bytes + other.bytes);
+        }
+
+        public boolean hasTimes() {
+            return from <= to;
+        }
+    }
+
+    record Block(byte[] gzip, Range range) {}
+
+    public static Range archive(Path logFile, LocalDate baseDay, OutputStream out,
+                                long blockSize, ExecutorService pool, int window) throws IOException {
+        var baseDayMillis = baseDay.toEpochDay() * TimestampScanner.MS_PER_DAY;
+        var chunks = TaskFiles.mapLines(logFile, 0, blockSize).iterator();
+        var pending = new ArrayDeque<CompletableFuture<Block>>();
+        var range = Range.EMPTY;
+        while (chunks.hasNext() || !pending.isEmpty()) {
+            while (pending.size() < window && chunks.hasNext()) {
+                var chunk = chunks.next();
+                pending.add(CompletableFuture.supplyAsync(() -> compress(chunk, baseDayMillis), pool));
+            }
+            var block = pending.poll().join();
+            out.write(block.gzip());
+            range = range.merge(block.range());
+        }
+        return range;
+    }
+
+    static Block compress(MappedLines.Chunk chunk, long baseDayMillis) {
+        var mapped = chunk.map();
+        var times = new long[]{Long.MAX_VALUE, Long.MIN_VALUE};
+        chunk.forEachLine(mapped, line -> {
+            var t = TimestampScanner.scan(line, baseDayMillis);
+            if (t == TimestampScanner.NONE) return;
+            if (t < times[0]) times[0] = t;
+            if (t > times[1]) times[1] = t;
+        });
+        var size = mapped.limit();
+        var bytes = new ByteArrayOutputStream(Math.max(64, size / 8));
+        try (var gzip = new GZIPOutputStream(bytes, 64 * 1024)) {
+            var buffer = new byte[64 * 1024];
+            mapped.position(0);
+            while (mapped.hasRemaining()) {
+                var n = Math.min(buffer.length, mapped.remaining());
+                mapped.get(buffer, 0, n);
+                gzip.write(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Block(bytes.toByteArray(), new Range(times[0], times[1], size));
+    }
+}
@@ -0,0 +1,74 @@
+package cj.logs;
+
+import software.amazon.awssdk.services.cloudwatchlogs.model.InputLogEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accumulates ascending events up to the largest batch a single PutLogEvents call accepts:
+ * at most 10,000 events, 1,048,576 bytes (message UTF-8 size plus 26 bytes per event)
+ * and 24 hours between the first and last event.
+ */
+public class LogBatch {
+    static final int MAX_EVENTS = 10_000;
+    static final int MAX_BYTES = 1_048_576;
+    static final int EVENT_OVERHEAD = 26;
+    static final long MAX_SPAN_MS = 24 * 60 * 60 * 1000L;
+
+    private List<InputLogEvent> events = new ArrayList<>();
+    private int bytes;
+    private long startedAt;
+
+    /**
+     * Adds the event, or returns false if it does not fit and the batch must be sent first.
+     */
+    public boolean offer(InputLogEvent event) {
+        var size = sizeOf(event);
+        if (!events.isEmpty() && (events.size() == MAX_EVENTS
+                || bytes + size > MAX_BYTES
+                || event.timestamp() - events.get(0).timestamp() > MAX_SPAN_MS)) {
+            return false;
+        }
+        if (events.isEmpty()) startedAt = System.currentTimeMillis();
+        events.add(event);
+        bytes += size;
+        return true;
+    }
+
+    public List<InputLogEvent> drain() {
+        var result = events;
+        events = new ArrayList<>();
+        bytes = 0;
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return events.isEmpty();
+    }
+
+    /**
+     * Milliseconds since the first event was added.
+     */
+    public long age() {
+        return events.isEmpty() ? 0 : System.currentTimeMillis() - startedAt;
+    }
+
+    static int sizeOf(InputLogEvent event) {
+        return utf8Length(event.message()) + EVENT_OVERHEAD;
+    }
+
+    static int utf8Length(String s) {
+        var length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            var c = s.charAt(i);
+            if (c < 0x80) length += 1;
+            else if (c < 0x800) length += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else length += 3;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,131 @@
+package cj.logs;
+
+import cj.TimeUtils;
+import software.amazon.awssdk.services.cloudwatchlogs.model.InputLogEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a log file lazily from a byte offset, one event per non-blank line, timed by {@link EventTime}.
+ * <p>
+ * In tail mode an unterminated last line is held back until its newline is written, and
+ * {@link #hasNext()} picks up bytes appended since the previous call.
+ */
+public class LogEventReader implements LogEvents {
+    static final int MAX_LINE_LENGTH = 10000;
+
+    private final FileChannel channel;
+    private final LocalDate baseDay;
+    private final boolean tail;
+    private final EventTime time;
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).flip();
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    private long position;
+    private InputLogEvent next;
+    private long nextEnd;
+    private long offset;
+    private long lastStart;
+
+    public LogEventReader(Path logFile, LocalDate baseDay, LogOffsets.Offset start, boolean tail) {
+        try {
+            this.channel = FileChannel.open(logFile, StandardOpenOption.READ).position(start.offset());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.baseDay = baseDay;
+        this.tail = tail;
+        this.position = start.offset();
+        this.offset = start.offset();
+        this.lastStart = start.offset();
+        this.time = new EventTime(start, baseDay);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) return true;
+        String text;
+        while ((text = readLine()) != null) {
+            if (text.isBlank()) continue;
+            if (text.length() >= MAX_LINE_LENGTH)
+                text = text.substring(0, MAX_LINE_LENGTH - 1);
+            next = InputLogEvent.builder()
+                    .timestamp(time.next(TimeUtils.parseTimestamp(text, baseDay)))
+                    .message(text)
+                    .build();
+            nextEnd = position;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public InputLogEvent next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        var result = next;
+        next = null;
+        lastStart = offset;
+        offset = nextEnd;
+        return result;
+    }
+
+    @Override
+    public long offset() {
+        return offset;
+    }
+
+    @Override
+    public long lastStart() {
+        return lastStart;
+    }
+
+    @Override
+    public long clamped() {
+        return time.clamped();
+    }
+
+    private String readLine() {
+        try {
+            while (true) {
+                while (buffer.hasRemaining()) {
+                    var b = buffer.get();
+                    position++;
+                    if (b == '\n') return takeLine();
+                    // Keep enough bytes for the longest event, but still consume the rest of the line
+                    if (line.size() < MAX_LINE_LENGTH * 4) line.write(b);
+                }
+                buffer.clear();
+                var read = channel.read(buffer);
+                buffer.flip();
+                if (read <= 0) {
+                    return !tail && line.size() > 0 ? takeLine() : null;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String takeLine() {
+        var text = line.toString(StandardCharsets.UTF_8);
+        line.reset();
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
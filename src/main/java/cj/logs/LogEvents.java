@@ -0,0 +1,28 @@
+package cj.logs;
+
+import software.amazon.awssdk.services.cloudwatchlogs.model.InputLogEvent;
+
+import java.util.Iterator;
+
+/**
+ * Ascending events read from a log file, with the byte offsets needed to resume.
+ */
+public interface LogEvents extends Iterator<InputLogEvent>, AutoCloseable {
+    /**
+     * Byte offset just after the last event returned by {@link #next()}.
+     */
+    long offset();
+
+    /**
+     * Byte offset just before the last event returned by {@link #next()}, to resume from if it was not shipped.
+     */
+    long lastStart();
+
+    /**
+     * Number of events whose timestamp was moved forward to keep the stream ascending.
+     */
+    long clamped();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,172 @@
+package cj.logs;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists how far each (file, stream) pair has been shipped, as "path stream fileKey offset timestamp" lines.
+ * <p>
+ * The file key (the inode on Unix) detects rotation: a different key, or a file shorter than the
+ * stored offset, starts the file over from the beginning.
+ * <p>
+ * Commits are kept in memory and written at most once per commit interval, plus on {@link #close()};
+ * after a crash, up to one interval of events may be shipped again.
+ */
+public class LogOffsets implements AutoCloseable {
+    public record Offset(String fileKey, long offset, long timestamp) {
+        public static final Offset START = new Offset(null, 0, -1);
+    }
+
+    private final Path path;
+    private final Map<String, Offset> offsets;
+    private final long intervalNanos;
+    private final Object writeLock = new Object();
+    private long lastWrite;
+    private long generation;
+    private volatile long written;
+
+    private LogOffsets(Path path, Map<String, Offset> offsets, Duration interval) {
+        this.path = path;
+        this.offsets = offsets;
+        this.intervalNanos = interval.toNanos();
+        this.lastWrite = System.nanoTime();
+    }
+
+    public static LogOffsets open(Path path) {
+        return open(path, Duration.ZERO);
+    }
+
+    public static LogOffsets open(Path path, Duration interval) {
+        var offsets = new HashMap<String, Offset>();
+        try {
+            if (Files.exists(path)) {
+                for (var line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                    var cols = line.split(" ");
+                    if (cols.length != 5) continue;
+                    offsets.put(key(decode(cols[0]), decode(cols[1])),
+                            new Offset(decode(cols[2]), Long.parseLong(cols[3]), Long.parseLong(cols[4])));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new LogOffsets(path, offsets, interval);
+    }
+
+    /**
+     * Where shipping of the file should resume, or {@link Offset#START} if it is new, rotated or truncated.
+     */
+    public synchronized Offset start(Path file, String stream) {
+        var stored = offsets.get(key(file.toAbsolutePath().toString(), stream));
+        if (stored == null) return Offset.START;
+        try {
+            var size = Files.size(file);
+            if (!stored.fileKey().equals(fileKey(file)) || size < stored.offset()) return Offset.START;
+        } catch (IOException e) {
+            return Offset.START;
+        }
+        return stored;
+    }
+
+    public void commit(Path file, String stream, long offset, long timestamp) {
+        var key = key(file.toAbsolutePath().toString(), stream);
+        var value = new Offset(fileKey(file), offset, timestamp);
+        List<String> lines;
+        long snapshot;
+        synchronized (this) {
+            offsets.put(key, value);
+            generation++;
+            var now = System.nanoTime();
+            if (now - lastWrite < intervalNanos) return;
+            lastWrite = now;
+            lines = lines();
+            snapshot = generation;
+        }
+        write(lines, snapshot);
+    }
+
+    /**
+     * Writes the offsets committed since the last write.
+     */
+    public void flush() {
+        List<String> lines;
+        long snapshot;
+        synchronized (this) {
+            if (generation == written) return;
+            lastWrite = System.nanoTime();
+            lines = lines();
+            snapshot = generation;
+        }
+        write(lines, snapshot);
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private List<String> lines() {
+        var lines = new ArrayList<String>(offsets.size());
+        offsets.forEach((key, value) -> {
+            var sep = key.indexOf('\0');
+            lines.add(String.join(" ",
+                    encode(key.substring(0, sep)),
+                    encode(key.substring(sep + 1)),
+                    encode(value.fileKey()),
+                    Long.toString(value.offset()),
+                    Long.toString(value.timestamp())));
+        });
+        return lines;
+    }
+
+    /**
+     * Replaces the file with the snapshot, unless a newer one was written meanwhile.
+     */
+    private void write(List<String> lines, long snapshot) {
+        synchronized (writeLock) {
+            if (snapshot <= written) return;
+            try {
+                var tmp = path.resolveSibling(path.getFileName() + ".tmp");
+                Files.write(tmp, lines, StandardCharsets.UTF_8);
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            written = snapshot;
+        }
+    }
+
+    static String fileKey(Path file) {
+        try {
+            var attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            var key = attrs.fileKey();
+            return key != null ? key.toString() : Long.toString(attrs.creationTime().toMillis());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String key(String file, String stream) {
+        return file + '\0' + stream;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,61 @@
+package cj.logs;
+
+import io.quarkus.runtime.annotations.StaticInitSafe;
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import io.smallrye.config.WithName;
+
+@ConfigMapping
+@StaticInitSafe
+public interface LogsConfiguration {
+    @WithName("follow")
+    @WithDefault("false")
+    boolean follow();
+
+    @WithName("flushSeconds")
+    @WithDefault("5")
+    int flushSeconds();
+
+    @WithName("offsetsCommitSeconds")
+    @WithDefault("5")
+    int offsetsCommitSeconds();
+
+    @WithName("pollMillis")
+    @WithDefault("1000")
+    long pollMillis();
+
+    @WithName("mapThresholdMb")
+    @WithDefault("64")
+    long mapThresholdMb();
+
+    @WithName("mapChunkMb")
+    @WithDefault("16")
+    long mapChunkMb();
+
+    /**
+     * Parsed chunks read ahead across all the mapped files at once.
+     */
+    @WithName("mapReadAheadChunks")
+    @WithDefault("8")
+    int mapReadAheadChunks();
+
+    @WithName("sink")
+    @WithDefault("cloudwatch")
+    String sink();
+
+    @WithName("s3.prefix")
+    @WithDefault("logs")
+    String s3Prefix();
+
+    @WithName("s3.gzipThreads")
+    @WithDefault("1")
+    int s3GzipThreads();
+
+    @WithName("s3.blockMb")
+    @WithDefault("8")
+    int s3BlockMb();
+
+    @WithName("s3.partSizeMb")
+    @WithDefault("16")
+    int s3PartSizeMb();
+}
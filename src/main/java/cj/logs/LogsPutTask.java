@@ -3,28 +3,52 @@ package cj.logs;
 import cj.OS;
 import cj.TimeUtils;
 import cj.aws.AWSTask;
+import cj.aws.s3.AWSGetBucketTask;
+import cj.aws.s3.MultipartUploadStream;
 import cj.fs.TaskFiles;
+import cj.spi.Task;
+import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.cloudwatchlogs.CloudWatchLogsClient;
 import software.amazon.awssdk.services.cloudwatchlogs.model.*;
+import software.amazon.awssdk.services.s3.model.Bucket;
 
 import javax.enterprise.context.Dependent;
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Comparator;
-import java.util.Deque;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+import static cj.aws.AWSOutput.S3Bucket;
 
 @Dependent
 @Named("logs-put")
 public class LogsPutTask extends AWSTask {
-    private static final int CWLOGS_MAX_LINE_LENGTH = 10000;
+    static final long MB = 1024L * 1024L;
+
     @Inject
     TaskFiles files;
 
+    LogOffsets offsets;
+
+    Semaphore readAhead;
+
+    @Inject
+    AWSGetBucketTask getDataBucket;
+
+    @Override
+    public Task getDependency() {
+        return isS3Sink() ? getDataBucket : null;
+    }
+
     @Override
     public void apply() {
         info("Putting logs");
@@ -34,10 +58,23 @@ public class LogsPutTask extends AWSTask {
         var logGroup = "/%s/%s".formatted(username, dataDirName);
         var logs =  files.findLogFiles();
         debug("Collected [{}] log files from [{}]", logs.size(), dataDirName);
-
+        if (isS3Sink()) {
+            archiveLogs(logs, dataDir, "%s/%s/%s".formatted(config().logs().s3Prefix(), username, dataDirName));
+            return;
+        }
+        readAhead = new Semaphore(config().logs().mapReadAheadChunks());
+        offsets = LogOffsets.open(TaskFiles.taskDir("logs-put").resolve("offsets"),
+                Duration.ofSeconds(config().logs().offsetsCommitSeconds()));
         try (var cw = aws().cloudwatchlogs()) {
             checkLogGroup(cw, logGroup);
-            logs.forEach(log -> putLog(cw, logGroup, dataDir, log));
+            if (config().logs().follow()) {
+                // Followed files never finish, so each one needs its own thread
+                forEachDedicated(logs, "follow", log -> putLog(cw, logGroup, dataDir, log));
+            } else {
+                forEachConcurrent(logs, maxConcurrency(), log -> putLog(cw, logGroup, dataDir, log));
+            }
+        } finally {
+            offsets.close();
         }
     }
 
@@ -68,9 +105,7 @@ public class LogsPutTask extends AWSTask {
 
     private void putLog(CloudWatchLogsClient cw, String logGroup, Path dataDir, Path logFile) {
         try {
-            var baseDay = TimeUtils.parseLocalDateTime(logFile.toAbsolutePath().toString())
-                    .orElse(LocalDateTime.now())
-                    .toLocalDate();
+            var baseDay = baseDayOf(logFile);
             var logStream = dataDir.relativize(logFile).toString();
             checkLogStream(cw, logGroup, logStream);
             debug("Putting log [{}] to group [{}] with baseDay [{}]", logStream, logGroup, baseDay);
@@ -82,6 +117,88 @@ public class LogsPutTask extends AWSTask {
         }
     }
 
+    private LocalDate baseDayOf(Path logFile) {
+        return TimeUtils.parseLocalDateTime(logFile.toAbsolutePath().toString())
+                .orElse(LocalDateTime.now())
+                .toLocalDate();
+    }
+
+    private boolean isS3Sink() {
+        return "s3".equalsIgnoreCase(config().logs().sink());
+    }
+
+    /**
+     * Gzips each log into the data bucket under the prefix, streaming through multipart uploads,
+     * and writes an index of the time range of every object.
+     */
+    private void archiveLogs(List<Path> logs, Path dataDir, String prefix) {
+        var bucket = getDataBucket.outputAs(S3Bucket, Bucket.class)
+                .map(Bucket::name)
+                .orElseThrow(() -> fail("No data bucket found"));
+        var logsConfig = config().logs();
+        var threads = Math.max(1, logsConfig.s3GzipThreads());
+        var pool = executors().cpu();
+        var index = new ConcurrentHashMap<String, LogArchive.Range>();
+        try (var s3 = aws().s3()) {
+            forEachConcurrent(logs, maxConcurrency(), logFile -> {
+                var key = prefix + "/" + dataDir.relativize(logFile).toString().replace('\\', '/') + ".gz";
+                var out = new MultipartUploadStream(s3, bucket, key, (int) (logsConfig.s3PartSizeMb() * MB));
+                // Closing completes the upload, so only close once the whole file is written
+                try {
+                    var range = LogArchive.archive(logFile, baseDayOf(logFile), out,
+                            logsConfig.s3BlockMb() * MB, pool, threads);
+                    out.close();
+                    index.put(key, range);
+                    debug("Archived [{}] to [s3://{}/{}]: [{}] bytes", logFile, bucket, key, range.bytes());
+                } catch (IOException | RuntimeException e) {
+                    error("Failed to archive log [{}] to [s3://{}/{}]: {}", logFile, bucket, key, e.getMessage());
+                    try {
+                        out.abort();
+                    } catch (RuntimeException ex) {
+                        warn("Failed to abort upload of [s3://{}/{}]: {}", bucket, key, ex.getMessage());
+                    }
+                }
+            });
+            var indexKey = "%s/index/%s.json".formatted(prefix, getExecutionId());
+            s3.putObject(b -> b.bucket(bucket).key(indexKey).contentType("application/json"),
+                    RequestBody.fromString(indexJson(index)));
+            info("Archived [{}] logs to [s3://{}/{}], index [{}]", index.size(), bucket, prefix, indexKey);
+        }
+    }
+
+    static String indexJson(Map<String, LogArchive.Range> index) {
+        var json = new StringBuilder("{\"objects\":[");
+        var first = true;
+        for (var entry : new TreeMap<>(index).entrySet()) {
+            var range = entry.getValue();
+            if (!first) json.append(',');
+            first = false;
+            json.append("\n{\"key\":").append(jsonString(entry.getKey()))
+                    .append(",\"bytes\":").append(range.bytes());
+            if (range.hasTimes()) {
+                json.append(",\"from\":").append(jsonString(Instant.ofEpochMilli(range.from()).toString()))
+                        .append(",\"to\":").append(jsonString(Instant.ofEpochMilli(range.to()).toString()));
+            }
+            json.append('}');
+        }
+        return json.append("\n]}\n").toString();
+    }
+
+    static String jsonString(String value) {
+        var json = new StringBuilder("\"");
+        for (var c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                default -> {
+                    if (c < 0x20) json.append("\\u%04x".formatted((int) c));
+                    else json.append(c);
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+
     private void checkLogStream(CloudWatchLogsClient cw, String logGroup, String logStream) {
         var exists = logStreamExists(cw, logGroup, logStream);
         if (! exists){
@@ -111,86 +228,104 @@ public class LogsPutTask extends AWSTask {
         return result;
     }
 
+    /**
+     * Ships the events appended since the last committed offset, then keeps tailing the file if following.
+     * Batches are sent when full, or once they are cj.logs.flushSeconds old.
+     */
     private void cloudwatchPutLog(CloudWatchLogsClient cw, String logGroup, String logStream, Path logFile, LocalDate baseDay) {
-        var lines = linesOf(logFile);
-        var events = eventsFromFile(logFile, baseDay);
-        if (events.length > 0){
-            var request = PutLogEventsRequest.builder()
-                    .logGroupName(logGroup)
-                    .logStreamName(logStream)
-                    .logEvents(events)
-                    .build();
-            cw.putLogEvents(request);
-            debug("[{}] log events put to [{}://{}]", events.length, logGroup, logStream);
-        }else{
-            debug("[-] log events to put to [{}://{}]", logGroup, logStream);
+        var logsConfig = config().logs();
+        var follow = logsConfig.follow();
+        var flushMillis = logsConfig.flushSeconds() * 1000L;
+        var start = offsets.start(logFile, logStream);
+        if (start.offset() > 0) {
+            debug("Resuming [{}] at byte [{}]", logFile, start.offset());
         }
-
-    }
-
-    private List<String> linesOf(Path logFile) {
-        var lines = files.readLines(logFile);
-        debug("Read [{}] lines from [{}]", lines.size(), logFile);
-        return lines;
-    }
-
-    //TODO: set correct timestamp for untimed log messages instead of filtering out
-    private InputLogEvent[] eventsFromFile(Path logFile, LocalDate baseDay) {
-        var lines = files.readLines(logFile);
-        var events = new LinkedList<InputLogEvent>();
-        var time = TimeUtils.toTimestamp(TimeUtils.atStartOfDay(baseDay));
-        for (String line : lines) {
-            if (line == null || line.isBlank()) continue;
-            if (line.length() >= CWLOGS_MAX_LINE_LENGTH)
-                line = line.substring(0, CWLOGS_MAX_LINE_LENGTH - 1);
-            var timestamp = timestampOf(line, logFile, baseDay);
-            if (timestamp != null){
-                time = timestamp;
-            } else {
-                timestamp = time;
+        var shipment = new Shipment(cw, logGroup, logStream, logFile);
+        try (var reader = openEvents(logFile, baseDay, start, follow)) {
+            var batch = new LogBatch();
+            do {
+                while (reader.hasNext()) {
+                    var event = reader.next();
+                    if (!batch.offer(event)) {
+                        send(shipment, batch, reader.lastStart());
+                        batch.offer(event);
+                    }
+                }
+                if (!batch.isEmpty() && (!follow || batch.age() >= flushMillis)) {
+                    send(shipment, batch, reader.offset());
+                }
+            } while (follow && sleep(logsConfig.pollMillis()));
+            if (reader.clamped() > 0) {
+                debug("[{}] events of [{}] moved forward to keep timestamps ascending", reader.clamped(), logFile);
             }
-            var event = createEvent(timestamp, line);
-            events.add(event);
         }
-        var ascendingOrder = checkAscendingTimeOrder(events);
-        if (! ascendingOrder){
-            warn("Events are not in ascending order. Resorting...");
-            warn("File: [{}]", logFile);
-            warn("Events: [{}]", events.size());
-            events.sort(Comparator.comparing(InputLogEvent::timestamp));
-            ascendingOrder = checkAscendingTimeOrder(events);
-            if (! ascendingOrder){
-                error("Events are still not in ascending order. Skipping...");
-                return new InputLogEvent[0];
-            }
+        if (shipment.rejected > 0) {
+            warn("[{}] log events rejected by [{}://{}] (too old or too new)", shipment.rejected, logGroup, logStream);
         }
-        var result = events.toArray(InputLogEvent[]::new);
-        return result;
+        debug("[{}] log events put to [{}://{}] in [{}] calls", shipment.events, logGroup, logStream, shipment.calls);
     }
 
-    private boolean checkAscendingTimeOrder(LinkedList<InputLogEvent> events) {
-        var last = Long.MIN_VALUE;
-        for (InputLogEvent event : events) {
-            if (event.timestamp() < last){
-                return false;
-            }
-            last = event.timestamp();
+    /**
+     * Large files are read as memory-mapped chunks in parallel, unless they are followed.
+     */
+    private LogEvents openEvents(Path logFile, LocalDate baseDay, LogOffsets.Offset start, boolean follow) {
+        var logsConfig = config().logs();
+        var pending = logFile.toFile().length() - start.offset();
+        if (!follow && pending >= logsConfig.mapThresholdMb() * MB) {
+            debug("Reading [{}] as mapped chunks of [{}] MB", logFile, logsConfig.mapChunkMb());
+            return new MappedLogEventReader(logFile, baseDay, start, logsConfig.mapChunkMb() * MB,
+                    executors().cpu(), readAhead);
         }
-        return true;
+        return new LogEventReader(logFile, baseDay, start, follow);
     }
 
+    static class Shipment {
+        final CloudWatchLogsClient cw;
+        final String logGroup;
+        final String logStream;
+        final Path logFile;
+        long events;
+        long rejected;
+        int calls;
+
+        Shipment(CloudWatchLogsClient cw, String logGroup, String logStream, Path logFile) {
+            this.cw = cw;
+            this.logGroup = logGroup;
+            this.logStream = logStream;
+            this.logFile = logFile;
+        }
+    }
 
-    private InputLogEvent createEvent(Long time, String line) {
-        return InputLogEvent.builder()
-                .timestamp(time)
-                .message(line)
+    private void send(Shipment shipment, LogBatch batch, long offset) {
+        var events = batch.drain();
+        var request = PutLogEventsRequest.builder()
+                .logGroupName(shipment.logGroup)
+                .logStreamName(shipment.logStream)
+                .logEvents(events)
                 .build();
+        var response = throttled(() -> shipment.cw.putLogEvents(request));
+        shipment.rejected += rejectedCount(response.rejectedLogEventsInfo(), events.size());
+        shipment.events += events.size();
+        shipment.calls++;
+        offsets.commit(shipment.logFile, shipment.logStream, offset, events.get(events.size() - 1).timestamp());
     }
 
-    private Long timestampOf(String line, Path fileName, LocalDate baseDay) {
-        var ldt = TimeUtils.parseLocalDateTime(line, baseDay);
-        var timestamp = ldt.map(TimeUtils::toTimestamp).orElse(null);
-        return timestamp;
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
+    private long rejectedCount(RejectedLogEventsInfo info, int batchSize) {
+        if (info == null) return 0;
+        var rejected = 0L;
+        if (info.tooOldLogEventEndIndex() != null) rejected += info.tooOldLogEventEndIndex();
+        if (info.expiredLogEventEndIndex() != null) rejected += info.expiredLogEventEndIndex();
+        if (info.tooNewLogEventStartIndex() != null) rejected += batchSize - info.tooNewLogEventStartIndex();
+        return Math.min(rejected, batchSize);
+    }
 }
@@ -0,0 +1,126 @@
+package cj.logs;
+
+import cj.TimestampScanner;
+import cj.fs.MappedLines;
+import cj.fs.TaskFiles;
+import software.amazon.awssdk.services.cloudwatchlogs.model.InputLogEvent;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Reads a large log file as memory-mapped, line-aligned chunks parsed in parallel on the given executor.
+ * <p>
+ * Every reader keeps one chunk in flight; chunks read ahead beyond that take a permit from readAhead,
+ * which is shared by all the files being read so the parsed chunks held in memory stay bounded.
+ * <p>
+ * Each chunk is scanned in a single pass: blank lines are skipped and timestamps found on the mapped
+ * bytes, so a String is only created for the message of each event. Chunks are consumed in order,
+ * and the timestamps of untimed lines are resolved then, across chunk boundaries.
+ */
+public class MappedLogEventReader implements LogEvents {
+    record Parsed(long timestamp, String message, long end) {}
+
+    record Pending(CompletableFuture<List<Parsed>> parsed, boolean permit) {}
+
+    private final Iterator<MappedLines.Chunk> chunks;
+    private final long baseDayMillis;
+    private final Executor executor;
+    private final Semaphore readAhead;
+    private final Deque<Pending> window = new ArrayDeque<>();
+    private final EventTime time;
+    private Iterator<Parsed> current = Collections.emptyIterator();
+    private long offset;
+    private long lastStart;
+
+    public MappedLogEventReader(Path logFile,
+                                LocalDate baseDay,
+                                LogOffsets.Offset start,
+                                long chunkSize,
+                                Executor executor,
+                                Semaphore readAhead) {
+        this.executor = executor;
+        this.readAhead = readAhead;
+        this.chunks = TaskFiles.mapLines(logFile, start.offset(), chunkSize).iterator();
+        this.baseDayMillis = baseDay.toEpochDay() * TimestampScanner.MS_PER_DAY;
+        this.time = new EventTime(start, baseDay);
+        this.offset = start.offset();
+        this.lastStart = start.offset();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            while (chunks.hasNext()) {
+                var permit = !window.isEmpty();
+                if (permit && !readAhead.tryAcquire()) break;
+                var chunk = chunks.next();
+                window.add(new Pending(CompletableFuture.supplyAsync(() -> parse(chunk, baseDayMillis), executor), permit));
+            }
+            if (window.isEmpty()) return false;
+            var head = window.poll();
+            if (head.permit()) readAhead.release();
+            current = head.parsed().join().iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public InputLogEvent next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        var parsed = current.next();
+        lastStart = offset;
+        offset = parsed.end();
+        return InputLogEvent.builder()
+                .timestamp(time.next(parsed.timestamp()))
+                .message(parsed.message())
+                .build();
+    }
+
+    static List<Parsed> parse(MappedLines.Chunk chunk, long baseDayMillis) {
+        var result = new ArrayList<Parsed>();
+        chunk.forEachLine(line -> {
+            if (line.isBlank()) return;
+            var timestamp = TimestampScanner.scan(line, baseDayMillis);
+            var message = line.toString(LogEventReader.MAX_LINE_LENGTH * 4);
+            if (message.length() >= LogEventReader.MAX_LINE_LENGTH)
+                message = message.substring(0, LogEventReader.MAX_LINE_LENGTH - 1);
+            result.add(new Parsed(timestamp, message, line.endOffset()));
+        });
+        return result;
+    }
+
+    @Override
+    public long offset() {
+        return offset;
+    }
+
+    @Override
+    public long lastStart() {
+        return lastStart;
+    }
+
+    @Override
+    public long clamped() {
+        return time.clamped();
+    }
+
+    @Override
+    public void close() {
+        Pending pending;
+        while ((pending = window.poll()) != null) {
+            pending.parsed().cancel(true);
+            if (pending.permit()) readAhead.release();
+        }
+    }
+}
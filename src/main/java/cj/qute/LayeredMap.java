@@ -0,0 +1,48 @@
+package cj.qute;
+
+import java.util.AbstractMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A read-only view over maps, looked up in order: a key in an earlier layer hides the same key in later ones.
+ * Lookups go straight to the layers, nothing is copied.
+ */
+final class LayeredMap extends AbstractMap<String, Object> {
+    private final List<Map<String, ?>> layers;
+
+    LayeredMap(List<Map<String, ?>> layers) {
+        this.layers = List.copyOf(layers);
+    }
+
+    @Override
+    public Object get(Object key) {
+        for (var layer : layers) {
+            var value = layer.get(key);
+            if (value != null || layer.containsKey(key)) return value;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        for (var layer : layers) {
+            if (layer.containsKey(key)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Merges the layers; only for iteration, which template evaluation does not need.
+     */
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        var merged = new LinkedHashMap<String, Object>();
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            merged.putAll(layers.get(i));
+        }
+        return merged.entrySet();
+    }
+}
@@ -3,17 +3,29 @@ package cj.qute;
 import cj.*;
 import cj.aws.AWSClientsManager;
 import cj.aws.AWSIdentity;
-import cj.fs.TaskFiles;
 import cj.spi.Task;
 import io.quarkus.qute.Engine;
 import io.quarkus.qute.Qute;
 import io.quarkus.qute.Template;
+import io.quarkus.qute.TemplateInstance;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
 
 @ApplicationScoped
 public class Templates implements Logging {
@@ -36,8 +48,14 @@ public class Templates implements Logging {
 
     @Inject
     AWSClientsManager awsManager;
-    private Map<String, String> templatePaths = new HashMap<>();
+    private final Map<String, String> templatePaths = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Map<String, String>> configuredInputs = new ConcurrentHashMap<>();
+    private final Map<String, Template> expressions = new ConcurrentHashMap<>();
+    private final Map<String, Object> templatePathData = Map.of("templatePath", templatePaths);
 
+    /**
+     * The parsed template at the location; the engine parses each location once and caches it.
+     */
     public Template getTemplate(String location) {
         if (engine == null) {
             warn("Failed to inject template engine.");
@@ -87,56 +105,107 @@ public class Templates implements Logging {
                 profile,
                 template
         );
-        var content = renderString(taskName, location, data);
-        if (content == null) return null;
         var outputFile = taskFile(taskName, outputFileName);
-        debug("Rendering template {} to [{}] {}", template, content.length(), outputFile);
-        TaskFiles.writeFile(outputFile, content);
+        var size = renderTo(location, data, outputFile);
+        debug("Rendered template {} to [{}] {}", template, size, outputFile);
         templatePaths.put(outputFile.toFile().getName(),
                 outputFile.toAbsolutePath().toString());
         return outputFile;
     }
 
     public String render(Task task, String location, Map<String, String> inputs) {
-        var taskInputs = getInputsMap(task);
-        var merged = new HashMap<>(taskInputs);
-        inputs.forEach((k,v) -> merged.merge(k, v, (a, b) -> b));
-        return renderString(task.getName(), location, merged);
+        var template = expectTemplate(location);
+        try {
+            return instance(template, configuredInputs(task), taskInputs(task), inputs).render();
+        } catch (Exception ex) {
+            error("Failed to render template from {}", location, ex);
+            throw new RuntimeException("Failed to render template from " + location, ex);
+        }
     }
 
     public String renderString(String taskName, String location, Map<String, String> inputs) {
         debug("Rendering template from {} with {} inputs", location, inputs.size());
+        var template = expectTemplate(location);
+        try {
+            return instance(template, inputs).render();
+        }catch (Exception ex) {
+            error("Failed to render template from {}", location, ex);
+            throw new RuntimeException("Failed to render template from " + location, ex);
+        }
+    }
+
+    /**
+     * Streams the rendered template into the file, chunk by chunk, and returns the bytes written.
+     */
+    long renderTo(String location, Map<String, String> inputs, Path outputFile) {
+        var template = expectTemplate(location);
+        try (var channel = FileChannel.open(outputFile, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            instance(template, inputs)
+                    .consume(chunk -> write(channel, chunk))
+                    .toCompletableFuture()
+                    .join();
+            return channel.size();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (CompletionException ex) {
+            error("Failed to render template from {}", location, ex.getCause());
+            throw new RuntimeException("Failed to render template from "+ location, ex.getCause());
+        }
+    }
+
+    private static void write(FileChannel channel, String chunk) {
+        try {
+            var buffer = ByteBuffer.wrap(chunk.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) channel.write(buffer);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Data is set on the instance as is, later layers last, rather than copied into a new map per render.
+     */
+    @SafeVarargs
+    private TemplateInstance instance(Template template, Map<String, String>... layers) {
+        var instance = template.instance();
+        for (var layer : layers) layer.forEach(instance::data);
+        instance.data("config", config);
+        return instance;
+    }
+
+    private Template expectTemplate(String location) {
         var template = getTemplate(location);
         if (template == null) {
             warn("Failed to load template from {}", location);
             throw new RuntimeException("Failed to load template from location "+location);
         }
-        var data = new HashMap<String, Object>();
-        data.putAll(inputs);
-        data.put("config", config);
-        try {
-            var render = template
-                    .data(data)
-                    .render();
-            return render;
-        }catch (Exception ex) {
-            ex.printStackTrace();
-            throw new RuntimeException("Failed to render template from "+ location);
-        }
+        return template;
     }
 
     public Map<String, String> getInputsMap(Task task) {
-        var result = new HashMap<String, String>();
-        var expected = inputsMap.getExpectedInputs(task);
-        expected.forEach(i -> {
-            var in = task.input(i);
-            if (in.isPresent()) {
-                var val = in.get();
-                putString(result, i, val);
-            }
+        var result = new HashMap<>(configuredInputs(task));
+        result.putAll(taskInputs(task));
+        return result;
+    }
+
+    /**
+     * The expected inputs of the task resolved from configuration, resolved once per task class
+     * and shared by every copy of the task, such as one per identity.
+     */
+    private Map<String, String> configuredInputs(Task task) {
+        return configuredInputs.computeIfAbsent(task.getClass(), c -> {
+            var result = new HashMap<String, String>();
+            inputsMap.getExpectedInputs(task).forEach(i -> {
+                var val = inputsMap.valueOf(i);
+                if (val != null) putString(result, i, val);
+            });
+            return Map.copyOf(result);
         });
-        var actual = task.inputs();
-        actual.forEach((i, o) -> putString(result, i, o));
+    }
+
+    private Map<String, String> taskInputs(Task task) {
+        var result = new HashMap<String, String>();
+        task.inputs().forEach((i, o) -> putString(result, i, o));
         return result;
     }
 
@@ -162,20 +231,27 @@ public class Templates implements Logging {
         return shell.taskFile(taskName, fileName);
     }
 
+    /**
+     * Evaluates a bypass expression, parsed once and cached, against the params over the rendered
+     * template paths over the bypass inputs.
+     */
     public String fmt(String expr, Map<String, Object> params) {
-        var inputs = inputsMap.bypassInputs();
-        var data = new HashMap<>(inputs);
-        params.forEach((k, v) -> data.merge(k, v, (a, b) -> b));
-        data.put("templatePath", templatePaths);
         try{
-            var fmt = Qute.fmt(expr, data);
-            return fmt;
+            var data = new LayeredMap(List.of(params, templatePathData, inputsMap.bypassInputs()));
+            return expression(expr)
+                    .instance()
+                    .data(data)
+                    .render();
         }catch (Exception ex){
             warn("Failed to format expression {}, omitting.", expr);
             return "";
         }
     }
 
+    private Template expression(String expr) {
+        return expressions.computeIfAbsent(expr, e -> Qute.engine().parse(e));
+    }
+
     public Map<String, String> templatePaths() {
         return templatePaths;
     }
@@ -0,0 +1,246 @@
+package cj.reporting;
+
+import cj.CJConfiguration;
+import cj.CloudResourceRecord;
+import cj.ManagedExecutors;
+import cj.spi.Task;
+import org.apache.parquet.conf.PlainParquetConfiguration;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroup;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.LocalOutputFile;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Types;
+import org.slf4j.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.apache.parquet.schema.LogicalTypeAnnotation.TimeUnit.MILLIS;
+import static org.apache.parquet.schema.LogicalTypeAnnotation.stringType;
+import static org.apache.parquet.schema.LogicalTypeAnnotation.timestampType;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BINARY;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BOOLEAN;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT32;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT64;
+
+/**
+ * Streams the inventory and the executed tasks to Parquet files under the execution path,
+ * partitioned as {@code <table>/account=<id>/region=<name>/<table>-<executionId>.parquet}.
+ * Rows are appended as they are produced, one open writer per partition that flushes a row group
+ * every ROW_GROUP_BYTES, so that Athena or DuckDB can query months of runs by pointing at the
+ * {@code export} directories.
+ */
+@ApplicationScoped
+public class Export {
+    static final String INVENTORY = "inventory";
+    static final String ACTIONS = "actions";
+    static final String EXECUTORS = "executors";
+    static final String UNKNOWN_PLACEMENT = "account=unknown/region=unknown";
+
+    static final long ROW_GROUP_BYTES = 8L * 1024 * 1024;
+
+    static final MessageType INVENTORY_SCHEMA = Types.buildMessage()
+            .required(BINARY).as(stringType()).named("execution_id")
+            .optional(BINARY).as(stringType()).named("type")
+            .optional(BINARY).as(stringType()).named("id")
+            .optional(BINARY).as(stringType()).named("name")
+            .optional(BINARY).as(stringType()).named("state")
+            .optional(BINARY).as(stringType()).named("vpc_id")
+            .optional(INT64).as(timestampType(true, MILLIS)).named("create_time")
+            .optional(BOOLEAN).named("matches_filter")
+            .optional(BINARY).as(stringType()).named("tags")
+            .optional(BINARY).as(stringType()).named("properties")
+            .named(INVENTORY);
+    static final MessageType ACTION_SCHEMA = Types.buildMessage()
+            .required(BINARY).as(stringType()).named("execution_id")
+            .optional(BINARY).as(stringType()).named("task")
+            .optional(BINARY).as(stringType()).named("class")
+            .optional(BINARY).as(stringType()).named("description")
+            .optional(INT64).as(timestampType(true, MILLIS)).named("start_time")
+            .optional(INT64).as(timestampType(true, MILLIS)).named("end_time")
+            .optional(INT64).named("elapsed_ms")
+            .optional(BOOLEAN).named("success")
+            .optional(BINARY).as(stringType()).named("errors")
+            .named(ACTIONS);
+    static final MessageType EXECUTOR_SCHEMA = Types.buildMessage()
+            .required(BINARY).as(stringType()).named("execution_id")
+            .optional(BINARY).as(stringType()).named("pool")
+            .optional(INT32).named("threads")
+            .optional(INT32).named("active")
+            .optional(INT32).named("queued")
+            .optional(INT32).named("peak_queued")
+            .optional(INT32).named("largest")
+            .optional(INT64).named("completed")
+            .named(EXECUTORS);
+
+    @Inject
+    Logger log;
+
+    @Inject
+    CJConfiguration config;
+
+    private final Map<Path, ParquetWriter<Group>> writers = new HashMap<>();
+
+    public boolean isEnabled() {
+        return config.report().export();
+    }
+
+    public void inventory(CloudResourceRecord resource) {
+        if (!isEnabled()) return;
+        var tags = resource.tags() == null ? Map.<String, String>of() : resource.tags();
+        var properties = resource.properties() == null ? Map.<String, String>of() : resource.properties();
+        write(INVENTORY_SCHEMA, resource.placement(),
+                executionId(),
+                resource.type() == null ? null : resource.type().toString(),
+                resource.id(),
+                resource.name(),
+                resource.state(),
+                resource.vpcId(),
+                resource.createTime(),
+                resource.matchesFilter(),
+                keyValues(tags),
+                keyValues(properties));
+    }
+
+    public void action(Task task) {
+        if (!isEnabled()) return;
+        var start = task.getStartTime();
+        var end = task.getEndTime();
+        write(ACTION_SCHEMA, placement(task),
+                executionId(),
+                task.getName(),
+                task.getClassName(),
+                task.toString().trim(),
+                start == null ? null : start.atZone(ZoneId.systemDefault()).toInstant(),
+                end == null ? null : end.atZone(ZoneId.systemDefault()).toInstant(),
+                task.getElapsedTime().map(d -> d.toMillis()).orElse(null),
+                task.isSuccess(),
+                task.getErrors().isEmpty() ? null : task.getErrors().toString());
+    }
+
+    public void executors(List<ManagedExecutors.Gauge> gauges) {
+        if (!isEnabled()) return;
+        for (var gauge : gauges) {
+            write(EXECUTOR_SCHEMA, null,
+                    executionId(),
+                    gauge.pool(),
+                    gauge.threads(),
+                    gauge.active(),
+                    gauge.queued(),
+                    gauge.peakQueued(),
+                    gauge.largest(),
+                    gauge.completed());
+        }
+    }
+
+    /**
+     * Closes every open writer, which writes the last row group and the footer of each file.
+     */
+    public synchronized void close() {
+        writers.forEach((file, writer) -> {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.error("Failed to close export file {}", file, e);
+            }
+        });
+        if (!writers.isEmpty()) {
+            log.info("Exported {} files to {}", writers.size(), exportPath());
+        }
+        writers.clear();
+    }
+
+    private synchronized void write(MessageType schema, String placement, Object... values) {
+        try {
+            writer(schema, placement).write(row(schema, values));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ParquetWriter<Group> writer(MessageType schema, String placement) throws IOException {
+        var table = schema.getName();
+        var partition = placement == null || placement.isBlank() ? UNKNOWN_PLACEMENT : placement;
+        var dir = exportPath().resolve(table).resolve(partition);
+        var file = dir.resolve("%s-%s.parquet".formatted(table, executionId()));
+        var writer = writers.get(file);
+        if (writer == null) {
+            Files.createDirectories(dir);
+            writer = open(file, schema);
+            writers.put(file, writer);
+            log.debug("Exporting {} to {}", table, file);
+        }
+        return writer;
+    }
+
+    /**
+     * A Snappy-compressed writer for the schema, written through java.nio without a Hadoop configuration.
+     */
+    static ParquetWriter<Group> open(Path file, MessageType schema) throws IOException {
+        return ExampleParquetWriter.builder(new LocalOutputFile(file))
+                .withConf(new PlainParquetConfiguration())
+                .withType(schema)
+                .withCompressionCodec(CompressionCodecName.SNAPPY)
+                .withRowGroupSize(ROW_GROUP_BYTES)
+                .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+                .build();
+    }
+
+    /**
+     * A row of the schema from values in field order, leaving null values unset.
+     */
+    static Group row(MessageType schema, Object... values) {
+        var row = new SimpleGroup(schema);
+        for (int i = 0; i < values.length; i++) {
+            var value = values[i];
+            if (value == null) continue;
+            if (value instanceof String s) row.add(i, s);
+            else if (value instanceof Instant t) row.add(i, t.toEpochMilli());
+            else if (value instanceof Boolean b) row.add(i, b);
+            else if (value instanceof Integer n) row.add(i, n);
+            else if (value instanceof Long n) row.add(i, n);
+            else throw new IllegalArgumentException("Unsupported %s value in %s".formatted(
+                        value.getClass().getSimpleName(), schema.getFieldName(i)));
+        }
+        return row;
+    }
+
+    private String placement(Task task) {
+        try {
+            return task.getPlacement();
+        } catch (Exception e) {
+            log.trace("Placement not available for {}", task, e);
+            return null;
+        }
+    }
+
+    private Path exportPath() {
+        return config.getExecutionPath().resolve("export");
+    }
+
+    private String executionId() {
+        return config.getExecutionPath().getFileName().toString();
+    }
+
+    private static String keyValues(Map<String, String> map) {
+        if (map.isEmpty()) return null;
+        return map.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(e -> e.getKey() + "=" + e.getValue())
+                .collect(Collectors.joining(";"));
+    }
+}
@@ -1,8 +1,18 @@
 package cj.shell;
 
+import java.nio.file.Path;
+
+/**
+ * Exit code and the last lines of stdout and stderr; the full output is in outputFile, when there is one.
+ */
 public record ExecResult(Integer exitCode,
                          String stdout,
-                         String stderr) {
+                         String stderr,
+                         Path outputFile) {
+    public ExecResult(Integer exitCode, String stdout, String stderr) {
+        this(exitCode, stdout, stderr, null);
+    }
+
     public static ExecResult fail(Exception ex) {
         return new ExecResult(null, null, ex.getMessage());
     }
@@ -0,0 +1,107 @@
+package cj.shell;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton over a fixed set of literals, compiled to a dense transition table.
+ * <p>
+ * Input is case-folded with {@link Character#toLowerCase(char)} while scanning; callers verify
+ * case-sensitive literals against the original text.
+ */
+final class LiteralMatcher {
+    interface Hits {
+        void hit(int literal, int start, int end);
+    }
+
+    private final int[] lengths;
+    private final char[] alphabet;
+    private final int[] asciiClass = new int[128];
+    private final int[] delta;
+    private final int[][] outputs;
+
+    LiteralMatcher(List<String> literals) {
+        lengths = literals.stream().mapToInt(String::length).toArray();
+        alphabet = alphabetOf(literals);
+        for (int i = 0; i < alphabet.length; i++) {
+            if (alphabet[i] < 128) asciiClass[alphabet[i]] = i + 1;
+        }
+        var width = alphabet.length + 1;
+        var trie = new ArrayList<int[]>();
+        var ends = new ArrayList<List<Integer>>();
+        trie.add(new int[width]);
+        ends.add(new ArrayList<>());
+        for (int p = 0; p < literals.size(); p++) {
+            var state = 0;
+            for (var c : literals.get(p).toCharArray()) {
+                var cls = classOf(Character.toLowerCase(c));
+                if (trie.get(state)[cls] == 0) {
+                    trie.get(state)[cls] = trie.size();
+                    trie.add(new int[width]);
+                    ends.add(new ArrayList<>());
+                }
+                state = trie.get(state)[cls];
+            }
+            ends.get(state).add(p);
+        }
+        // Breadth-first: fill missing transitions from the failure state and inherit its outputs
+        delta = new int[trie.size() * width];
+        var fail = new int[trie.size()];
+        var queue = new int[trie.size()];
+        int head = 0, tail = 0;
+        for (int cls = 1; cls < width; cls++) {
+            var next = trie.get(0)[cls];
+            delta[cls] = next;
+            if (next != 0) queue[tail++] = next;
+        }
+        while (head < tail) {
+            var state = queue[head++];
+            ends.get(state).addAll(ends.get(fail[state]));
+            for (int cls = 1; cls < width; cls++) {
+                var next = trie.get(state)[cls];
+                if (next != 0) {
+                    fail[next] = delta[fail[state] * width + cls];
+                    delta[state * width + cls] = next;
+                    queue[tail++] = next;
+                } else {
+                    delta[state * width + cls] = delta[fail[state] * width + cls];
+                }
+            }
+        }
+        outputs = ends.stream()
+                .map(e -> e.stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+    }
+
+    void scan(CharSequence text, Hits hits) {
+        var width = alphabet.length + 1;
+        var state = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            state = delta[state * width + classOf(Character.toLowerCase(text.charAt(i)))];
+            for (var p : outputs[state]) {
+                hits.hit(p, i + 1 - lengths[p], i + 1);
+            }
+        }
+    }
+
+    /**
+     * Index of c in the sorted alphabet plus one; 0 for characters no literal contains.
+     */
+    private int classOf(char c) {
+        if (c < 128) return asciiClass[c];
+        var i = Arrays.binarySearch(alphabet, c);
+        return i < 0 ? 0 : i + 1;
+    }
+
+    private static char[] alphabetOf(List<String> literals) {
+        var chars = new StringBuilder();
+        literals.forEach(l -> l.chars()
+                .map(c -> Character.toLowerCase((char) c))
+                .filter(c -> chars.indexOf(String.valueOf((char) c)) < 0)
+                .forEach(c -> chars.append((char) c)));
+        var result = chars.toString().toCharArray();
+        Arrays.sort(result);
+        return result;
+    }
+}
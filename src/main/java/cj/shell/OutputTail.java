@@ -0,0 +1,45 @@
+package cj.shell;
+
+/**
+ * The last lines of a command's output, in a fixed-size ring so a chatty command cannot fill the heap.
+ */
+public class OutputTail {
+    private final String[] lines;
+    private int next;
+    private long count;
+
+    public OutputTail(int capacity) {
+        this.lines = new String[Math.max(1, capacity)];
+    }
+
+    public synchronized void add(String line) {
+        lines[next] = line;
+        next = (next + 1) % lines.length;
+        count++;
+    }
+
+    /**
+     * Lines seen so far, including those no longer kept.
+     */
+    public synchronized long count() {
+        return count;
+    }
+
+    public synchronized boolean isTruncated() {
+        return count > lines.length;
+    }
+
+    /**
+     * The kept lines, oldest first, each followed by a newline.
+     */
+    @Override
+    public synchronized String toString() {
+        var result = new StringBuilder();
+        var kept = (int) Math.min(count, lines.length);
+        var first = count > lines.length ? next : 0;
+        for (int i = 0; i < kept; i++) {
+            result.append(lines[(first + i) % lines.length]).append('\n');
+        }
+        return result.toString();
+    }
+}
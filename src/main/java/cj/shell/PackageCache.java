@@ -0,0 +1,359 @@
+package cj.shell;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Downloaded and extracted packages, one directory per URL under the package dir:
+ * <pre>
+ *   &lt;sha256 of url&gt;/&lt;file&gt;           the archive
+ *   &lt;sha256 of url&gt;/&lt;file&gt;.part      an interrupted download, resumed with a Range request
+ *   &lt;sha256 of url&gt;/&lt;name&gt;/          the extracted package
+ *   &lt;sha256 of url&gt;/&lt;name&gt;/.cj-package  the archive's SHA-256, written once extraction is complete
+ *   &lt;sha256 of url&gt;/.lock               held while the entry is installed
+ * </pre>
+ * A fresh download is untarred while it streams in, into a staging directory that only replaces the
+ * package once the archive is verified. A URL ending with {@code #sha256=<hex>} is verified against
+ * that digest. Installing a package whose marker is present, and matches that digest, does no work at all.
+ * Installs of the same entry are serialized across threads and processes.
+ */
+public class PackageCache {
+    private static final Logger log = LoggerFactory.getLogger(PackageCache.class);
+    static final String MARKER = ".cj-package";
+    static final String SHA256_FRAGMENT = "sha256=";
+    static final String LOCK = ".lock";
+    static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+    private static final Map<Path, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    record Entry(URL source, String expectedSha256, Path archive, Path part, Path extractDir) {
+        Path marker() {
+            return extractDir.resolve(MARKER);
+        }
+
+        Path dir() {
+            return extractDir.getParent();
+        }
+    }
+
+    private final Path root;
+
+    public PackageCache(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * The extracted package directory, downloading and extracting it unless already cached;
+     * null for unsupported archive formats.
+     */
+    public Path install(String url) {
+        var entry = entry(url);
+        if (isCached(entry)) {
+            log.debug("Package {} cached in {}", url, entry.extractDir());
+            return entry.extractDir();
+        }
+        if (!isTarGz(entry.archive())) {
+            log.warn("Unsupported package format: {}", entry.archive());
+            return null;
+        }
+        var lock = locks.computeIfAbsent(entry.dir().toAbsolutePath().normalize(), d -> new ReentrantLock());
+        lock.lock();
+        try {
+            Files.createDirectories(entry.dir());
+            try (var channel = FileChannel.open(entry.dir().resolve(LOCK), CREATE, WRITE)) {
+                var fileLock = channel.lock();
+                try {
+                    if (isCached(entry)) {
+                        log.debug("Package {} installed by another task in {}", url, entry.extractDir());
+                        return entry.extractDir();
+                    }
+                    install(entry);
+                    log.debug("Package {} installed to {}", url, entry.extractDir());
+                    return entry.extractDir();
+                } finally {
+                    fileLock.release();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Extracts into a staging directory next to the package, verifies the archive,
+     * and only then moves the staging directory into place.
+     */
+    private void install(Entry entry) throws IOException {
+        if (Files.exists(entry.marker())) {
+            // The cached archive is the one the marker describes, not the one now expected
+            Files.deleteIfExists(entry.archive());
+        }
+        var staging = Files.createTempDirectory(entry.dir(), entry.extractDir().getFileName() + ".staging-");
+        try {
+            String digest;
+            if (Files.exists(entry.archive())) {
+                digest = extractFile(entry, staging);
+            } else if (Files.exists(entry.part()) && Files.size(entry.part()) > 0) {
+                resume(entry);
+                digest = extractFile(entry, staging);
+            } else {
+                digest = downloadAndExtract(entry, staging);
+            }
+            verify(entry, digest);
+            Files.writeString(staging.resolve(MARKER), digest);
+            replace(entry.extractDir(), staging);
+        } finally {
+            deleteTree(staging);
+        }
+    }
+
+    /**
+     * Moves the staged directory to the target, moving any previous target aside first,
+     * so that the target is never seen partially extracted.
+     */
+    private static void replace(Path target, Path staged) throws IOException {
+        Path previous = null;
+        if (Files.exists(target)) {
+            previous = target.resolveSibling(target.getFileName() + ".previous-" + staged.getFileName());
+            Files.move(target, previous, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE);
+        if (previous != null) deleteTree(previous);
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir, LinkOption.NOFOLLOW_LINKS)) return;
+        try (var paths = Files.walk(dir)) {
+            for (var path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Whether the package is extracted and, when the URL names a digest, extracted from that archive.
+     */
+    static boolean isCached(Entry entry) {
+        if (!Files.exists(entry.marker())) return false;
+        if (entry.expectedSha256() == null) return true;
+        try {
+            return entry.expectedSha256().equals(Files.readString(entry.marker()).trim());
+        } catch (IOException e) {
+            log.debug("Failed to read {}", entry.marker(), e);
+            return false;
+        }
+    }
+
+    Entry entry(String url) {
+        var fragment = url.indexOf('#');
+        var location = fragment < 0 ? url : url.substring(0, fragment);
+        var expected = fragment >= 0 && url.startsWith(SHA256_FRAGMENT, fragment + 1)
+                ? url.substring(fragment + 1 + SHA256_FRAGMENT.length()).toLowerCase()
+                : null;
+        var fileName = location.substring(location.lastIndexOf('/') + 1);
+        var dir = root.resolve(sha256(location).substring(0, 16));
+        try {
+            return new Entry(new URL(location),
+                    expected,
+                    dir.resolve(fileName),
+                    dir.resolve(fileName + ".part"),
+                    dir.resolve(baseName(fileName)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Downloads into the part file while untarring the same bytes, then completes the archive.
+     */
+    private String downloadAndExtract(Entry entry, Path extractDir) throws IOException {
+        log.debug("Download {} to {}", entry.source(), entry.archive());
+        String digest;
+        try (var part = FileChannel.open(entry.part(), CREATE, WRITE, TRUNCATE_EXISTING);
+             var in = new TeeInputStream(entry.source().openStream(), part)) {
+            digest = extract(in, extractDir);
+        }
+        Files.move(entry.part(), entry.archive(), StandardCopyOption.REPLACE_EXISTING);
+        return digest;
+    }
+
+    /**
+     * Fetches the rest of an interrupted download, or all of it if the server ignores the range.
+     */
+    private void resume(Entry entry) throws IOException {
+        var position = Files.size(entry.part());
+        var connection = entry.source().openConnection();
+        if (connection instanceof HttpURLConnection http) {
+            http.setRequestProperty("Range", "bytes=%d-".formatted(position));
+            if (http.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) position = 0;
+        } else {
+            position = 0;
+        }
+        log.debug("Resume download of {} at {} bytes", entry.source(), position);
+        try (var part = FileChannel.open(entry.part(), CREATE, WRITE);
+             var source = Channels.newChannel(connection.getInputStream())) {
+            part.truncate(position);
+            long transferred;
+            while ((transferred = part.transferFrom(source, position, TRANSFER_CHUNK)) > 0) {
+                position += transferred;
+            }
+        }
+        Files.move(entry.part(), entry.archive(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private String extractFile(Entry entry, Path extractDir) throws IOException {
+        try (var in = Files.newInputStream(entry.archive())) {
+            return extract(in, extractDir);
+        }
+    }
+
+    /**
+     * Untars the gzip stream into the directory and returns the SHA-256 of all the bytes read.
+     */
+    static String extract(InputStream in, Path extractDir) throws IOException {
+        var digest = new HashingInputStream(in);
+        var tar = new TarArchiveInputStream(new GzipCompressorInputStream(digest));
+        var root = extractDir.toAbsolutePath().normalize();
+        for (var entry = tar.getNextTarEntry(); entry != null; entry = tar.getNextTarEntry()) {
+            if (entry.isDirectory()) continue;
+            var file = root.resolve(entry.getName()).normalize();
+            if (!file.startsWith(root)) throw new IOException("Package entry outside of package: " + entry.getName());
+            Files.createDirectories(file.getParent());
+            Files.copy(tar, file, StandardCopyOption.REPLACE_EXISTING);
+            if (entry.isFile()) {
+                var isExecutable = (entry.getMode() & 0100) != 0;
+                if (isExecutable) log.debug("Setting as executable: {}", entry.getName());
+                file.toFile().setExecutable(isExecutable);
+            }
+        }
+        // Read what follows the last tar block, so the digest covers the whole archive
+        digest.transferTo(OutputStream.nullOutputStream());
+        return HexFormat.of().formatHex(digest.getMessageDigest().digest());
+    }
+
+    private void verify(Entry entry, String digest) throws IOException {
+        if (entry.expectedSha256() == null || entry.expectedSha256().equals(digest)) return;
+        Files.deleteIfExists(entry.archive());
+        throw new IOException("SHA-256 of %s is %s, expected %s".formatted(entry.source(), digest, entry.expectedSha256()));
+    }
+
+    static boolean isTarGz(Path archive) {
+        var name = archive.getFileName().toString();
+        return name.endsWith(".tar.gz") || name.endsWith(".tgz");
+    }
+
+    static String baseName(String fileName) {
+        if (fileName.endsWith(".tar.gz"))
+            return fileName.substring(0, fileName.length() - 7);
+        else if (fileName.endsWith(".tgz") || fileName.endsWith(".zip"))
+            return fileName.substring(0, fileName.length() - 4);
+        var dot = fileName.indexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName + ".d";
+    }
+
+    static String sha256(String text) {
+        return HexFormat.of().formatHex(messageDigest().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static String sha256OfFile(Path file) throws IOException {
+        try (var in = new DigestInputStream(Files.newInputStream(file), messageDigest())) {
+            in.transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(in.getMessageDigest().digest());
+        }
+    }
+
+    private static MessageDigest messageDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A digest stream that hashes every byte once: it can not be reset, and skipped bytes are read.
+     * The gzip reader rewinds or skips past what its inflater did not use.
+     */
+    static class HashingInputStream extends DigestInputStream {
+        HashingInputStream(InputStream in) {
+            super(in, messageDigest());
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            var scratch = new byte[(int) Math.min(n, 8192)];
+            var skipped = 0L;
+            while (skipped < n) {
+                var read = read(scratch, 0, (int) Math.min(scratch.length, n - skipped));
+                if (read < 0) break;
+                skipped += read;
+            }
+            return skipped;
+        }
+    }
+
+    /**
+     * Copies every byte read to the channel.
+     */
+    static class TeeInputStream extends FilterInputStream {
+        private final FileChannel copy;
+
+        TeeInputStream(InputStream in, FileChannel copy) {
+            super(in);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var b = super.read();
+            if (b >= 0) copy.write(ByteBuffer.wrap(new byte[]{(byte) b}));
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            var n = super.read(b, off, len);
+            if (n > 0) {
+                var buffer = ByteBuffer.wrap(b, off, n);
+                while (buffer.hasRemaining()) copy.write(buffer);
+            }
+            return n;
+        }
+    }
+}
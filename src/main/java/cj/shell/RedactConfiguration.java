@@ -0,0 +1,14 @@
+package cj.shell;
+
+import io.quarkus.runtime.annotations.StaticInitSafe;
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithName;
+
+import java.util.List;
+
+@ConfigMapping
+@StaticInitSafe
+public interface RedactConfiguration {
+    @WithName("rules")
+    List<RedactRule> rules();
+}
@@ -0,0 +1,34 @@
+package cj.shell;
+
+import io.quarkus.runtime.annotations.StaticInitSafe;
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+import io.smallrye.config.WithName;
+
+import java.util.Optional;
+
+/**
+ * A redaction rule: a literal, a regex, or a regex that only runs on lines containing the literal.
+ */
+@ConfigMapping
+@StaticInitSafe
+public interface RedactRule {
+    String name();
+
+    Optional<String> literal();
+
+    Optional<String> regex();
+
+    @WithName("ignoreCase")
+    @WithDefault("false")
+    boolean ignoreCase();
+
+    Optional<String> replacement();
+
+    /**
+     * "match" replaces what matched, "line" replaces the whole line.
+     */
+    @WithName("scope")
+    @WithDefault("match")
+    String scope();
+}
@@ -0,0 +1,134 @@
+package cj.shell;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Applies all redaction rules to a line in one pass.
+ * <p>
+ * Rules are compiled once: literals go into a single {@link LiteralMatcher}, and a regex only runs
+ * on lines where its rule's literal was found (or on every line when the rule has no literal).
+ * Replacements are literal text. Untouched lines are returned as the same instance, without copying.
+ */
+public final class Redactor {
+    public record Rule(String name,
+                       String literal,
+                       Pattern regex,
+                       boolean ignoreCase,
+                       String replacement,
+                       boolean wholeLine) {
+        public static Rule of(RedactRule config) {
+            if (config.literal().isEmpty() && config.regex().isEmpty())
+                throw new IllegalArgumentException("Redaction rule %s needs a literal or a regex".formatted(config.name()));
+            var flags = config.ignoreCase() ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0;
+            return new Rule(config.name(),
+                    config.literal().orElse(null),
+                    config.regex().map(r -> Pattern.compile(r, flags)).orElse(null),
+                    config.ignoreCase(),
+                    config.replacement().orElse(""),
+                    "line".equalsIgnoreCase(config.scope()));
+        }
+    }
+
+    record Span(int start, int end, String replacement) {}
+
+    private final Rule[] rules;
+    private final LiteralMatcher literals;
+    private final int[] ruleOfLiteral;
+
+    private Redactor(List<Rule> rules) {
+        this.rules = rules.toArray(Rule[]::new);
+        var literalList = new ArrayList<String>();
+        var ruleIndexes = new ArrayList<Integer>();
+        for (int r = 0; r < this.rules.length; r++) {
+            if (this.rules[r].literal() != null) {
+                literalList.add(this.rules[r].literal());
+                ruleIndexes.add(r);
+            }
+        }
+        this.literals = new LiteralMatcher(literalList);
+        this.ruleOfLiteral = ruleIndexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public static Redactor of(List<Rule> rules) {
+        return new Redactor(rules);
+    }
+
+    public static Redactor of(RedactConfiguration config) {
+        return of(config.rules().stream().map(Rule::of).toList());
+    }
+
+    /**
+     * The redacted line, or the same line if no rule applies.
+     */
+    public CharSequence redact(CharSequence line) {
+        var scan = new Scan(line);
+        literals.scan(line, scan);
+        if (scan.lineReplacement != null) return scan.lineReplacement;
+        for (int r = 0; r < rules.length; r++) {
+            var rule = rules[r];
+            if (rule.regex() == null || (rule.literal() != null && !scan.triggered[r])) continue;
+            var matcher = rule.regex().matcher(line);
+            while (matcher.find()) {
+                if (rule.wholeLine()) return rule.replacement();
+                scan.add(new Span(matcher.start(), matcher.end(), rule.replacement()));
+            }
+        }
+        return scan.spans == null ? line : scan.apply();
+    }
+
+    private final class Scan implements LiteralMatcher.Hits {
+        final CharSequence line;
+        final boolean[] triggered = new boolean[rules.length];
+        List<Span> spans;
+        String lineReplacement;
+
+        Scan(CharSequence line) {
+            this.line = line;
+        }
+
+        @Override
+        public void hit(int literal, int start, int end) {
+            var r = ruleOfLiteral[literal];
+            var rule = rules[r];
+            if (!rule.ignoreCase() && !matches(rule.literal(), start)) return;
+            if (rule.regex() != null) {
+                triggered[r] = true;
+            } else if (rule.wholeLine()) {
+                if (lineReplacement == null) lineReplacement = rule.replacement();
+            } else {
+                add(new Span(start, end, rule.replacement()));
+            }
+        }
+
+        void add(Span span) {
+            if (spans == null) spans = new ArrayList<>();
+            spans.add(span);
+        }
+
+        boolean matches(String literal, int start) {
+            for (int i = 0; i < literal.length(); i++) {
+                if (line.charAt(start + i) != literal.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Replaces the spans, leftmost first; a span overlapping one already replaced is dropped.
+         */
+        String apply() {
+            spans.sort(Comparator.comparingInt(Span::start)
+                    .thenComparing(Comparator.comparingInt(Span::end).reversed()));
+            var result = new StringBuilder(line.length());
+            var position = 0;
+            for (var span : spans) {
+                if (span.start() < position) continue;
+                result.append(line, position, span.start()).append(span.replacement());
+                position = span.end();
+            }
+            return result.append(line, position, line.length()).toString();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package cj.shell;
+
+import cj.CJConfiguration;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Produces;
+import javax.inject.Singleton;
+
+@ApplicationScoped
+public class Redactors {
+    @Produces
+    @Singleton
+    public Redactor redactor(CJConfiguration config) {
+        return Redactor.of(config.redact());
+    }
+}
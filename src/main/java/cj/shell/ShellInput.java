@@ -5,5 +5,7 @@ import cj.Input;
 public enum ShellInput implements Input {
     prompt,
     timeout,
-    executable
+    executable,
+    env,
+    outputPrefix
 }
\ No newline at end of file
@@ -3,6 +3,6 @@ package cj.shell;
 import cj.Output;
 
 public enum ShellOutput implements Output {
-        exitCode, stderr, stdout
+        exitCode, stderr, stdout, outputFile
 
-}
\ No newline at end of file
+}
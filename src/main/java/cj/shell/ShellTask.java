@@ -2,39 +2,51 @@ package cj.shell;
 
 import cj.*;
 import cj.fs.TaskFiles;
-import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
-import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
-import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
-import org.apache.commons.compress.utils.IOUtils;
 
 import javax.enterprise.context.Dependent;
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.io.*;
-import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static cj.shell.ShellInput.*;
 import static cj.shell.ShellOutput.*;
+import static java.nio.file.StandardOpenOption.*;
 
 @Dependent
 @Named("shell")
 public class ShellTask extends BaseTask {
+    static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rw-------");
+
     @Inject
     Runtime runtime;
     @Inject
-    ExecutorService executor;
+    ManagedExecutors executors;
 
     @Inject
     TaskFiles files;
 
+    @Inject
+    Redactor redactor;
+
+    private final AtomicInteger execCount = new AtomicInteger();
+
     @Override
     public void apply() {
         var cmdList = inputList(prompt, String.class);
@@ -98,11 +110,14 @@ public class ShellTask extends BaseTask {
     }
 
     private void installPkgFromUrl(PackagesConfig pkgCfg, String url) {
-        var pkgDir = files.packageDir();
-        debug("Download {} to {}", url, pkgDir);
-        var pkgFile = downloadPkg(url, pkgDir);
-        if (pkgFile == null) return;
-        var extractDir = extractPkg(pkgFile);
+        var cache = new PackageCache(files.packageDir());
+        Path extractDir;
+        try {
+            extractDir = cache.install(url);
+        } catch (RuntimeException e) {
+            warn("Failed to install package {}: {}", url, e.getMessage());
+            return;
+        }
         if (extractDir == null) return;
         linkPath(pkgCfg, extractDir);
         debug("install completed");
@@ -126,92 +141,11 @@ public class ShellTask extends BaseTask {
         debug("Link {} => {}", from, to);
         try {
             Files.createSymbolicLink(to, from);
-            Thread.sleep(5000);
-        } catch (IOException | InterruptedException ex) {
+        } catch (IOException ex) {
             warn("Failed to link {} to {}: {}", from, to, ex);
         }
     }
 
-    private Path extractPkg(Path pkgFile) {
-        if (pkgFile.toString().endsWith(".tar.gz")){
-            return extractTarGz(pkgFile);
-        } else {
-            warn("Unsupported package format: {}", pkgFile);
-        }
-        return null;
-    }
-
-    private Path extractTarGz(Path pkgFile) {
-        var pkgDir = pkgFile.getParent();
-        var dirName = baseName(pkgFile);
-        var extractDir = TaskFiles.resolveDir(pkgDir, dirName);
-        try (var in = new FileInputStream(pkgFile.toFile())) {
-            var fin = new TarArchiveInputStream(new GzipCompressorInputStream(in));
-            TarArchiveEntry entry = null;
-            while ((entry = fin.getNextTarEntry()) != null) {
-                if (entry.isDirectory()) {
-                    continue;
-                }
-                var file = extractDir.resolve(entry.getName()).toFile();
-                File parent = file.getParentFile();
-                if (!parent.exists()) {
-                    parent.mkdirs();
-                }
-                var fout = new FileOutputStream(file);
-                IOUtils.copy(fin, fout);
-                fout.close();
-                trace("file extracted, fixing permissions");
-                if (entry.isFile()){
-                    var fileMode = entry.getMode();
-                    var isExecutable = (fileMode & 0b100) != 0;
-                    if (isExecutable)
-                        debug("Setting as executable: {}",entry.getName());
-                    file.setExecutable(isExecutable);
-                }
-            }
-            debug("Package extracted to {}", extractDir);
-            return extractDir;
-        } catch (IOException e) {
-            warn("Failed to extract tar.gz file: {}", e.getMessage());
-        }
-        return null;
-    }
-
-    private String baseName(Path pkgFile) {
-        var fileName = pkgFile.getFileName().toString();
-        if (fileName.endsWith(".tar.gz"))
-            return fileName.substring(0, fileName.length() - 7);
-        else if (fileName.endsWith(".tgz")
-            || fileName.endsWith(".zip"))
-            return fileName.substring(0, fileName.length() - 4);
-        else
-            return fileName.substring(0, fileName.indexOf('.'));
-    }
-
-    private Path downloadPkg(String url, Path pkgDir)  {
-        try (var in = new BufferedInputStream(
-                new URL(url).openStream())){
-            var fileName = fileNameFromUrl(url);
-            var filePath = pkgDir.resolve(fileName).toAbsolutePath();
-            if (fileName == null) return filePath;
-            var fileOutputStream = new FileOutputStream(filePath.toString());
-            byte dataBuffer[] = new byte[1024];
-            int bytesRead;
-            while ((bytesRead = in.read(dataBuffer, 0, 1024)) != -1) {
-                fileOutputStream.write(dataBuffer, 0, bytesRead);
-            }
-            debug("Package downloaded to {}", filePath);
-            return filePath;
-        } catch (IOException e) {
-            error("Failed to download package", e);
-            return null;
-        }
-    }
-
-    private String fileNameFromUrl(String url) {
-        return url.substring(url.lastIndexOf('/') + 1);
-    }
-
     private ExecResult runCheck(String line) {
         var prompt = List.of(line.split(" "));
         try {
@@ -233,81 +167,110 @@ public class ShellTask extends BaseTask {
             ExecutionException,
             TimeoutException {
         var cmdArr = cmdList.toArray(String[]::new);
-        var output = new StringBuffer();
-        var error = new StringBuffer();
-        var process = runtime.exec(cmdArr);
-        var processIn = process.getInputStream();
-        var processErr = process.getErrorStream();
-        var outGobbler = StreamGobbler.of(
-                processIn,
-                s -> this.printAndAppend(output, s));
-        var errGobbler = new StreamGobbler(processErr,
-                s -> this.printAndAppend(error, s));
-        var futureOut = executor.submit(outGobbler);
-        var futureErr = executor.submit(errGobbler);
-        var timeoutIn = inputAs(timeout, Long.class)
-                .orElse(config().execTimeout());
-        trace("Waiting up to [{}] minutes for shell command to complete.", timeoutIn);
-        var isDone = process.waitFor(timeoutIn, TimeUnit.MINUTES);
-        futureOut.get(timeoutIn, TimeUnit.MINUTES);
-        futureErr.get(timeoutIn, TimeUnit.MINUTES);
-        var processExitCode = process.exitValue();
-        var processOutput = output.toString();
-        var processError = error.toString();
+        var tailLines = config().execTailLines();
+        var output = new OutputTail(tailLines);
+        var error = new OutputTail(tailLines);
+        var prefix = inputString(outputPrefix).orElse(null);
+        var outputFile = newOutputFile(prefix);
         var cmdLine = String.join(" ", cmdList);
-        trace("[{}]$ {}\n{}\n{}", processExitCode, cmdLine, processOutput, processError);
-        success(exitCode, processExitCode);
-        success(stdout, processOutput);
-        success(stderr, processError);
-        var result = new ExecResult(processExitCode, processOutput, processError);
-        return success(result);
-    }
-
-    private void printAndAppend(StringBuffer output, String s) {
-        output.append(s);
-        output.append("\n");
-        s = redact(s);
-        log(s);
+        try (var sink = FileChannel.open(outputFile, WRITE)) {
+            writeLine(sink, "$ " + redactor.redact(cmdLine));
+            var process = runtime.exec(cmdArr, environment());
+            var outGobbler = StreamGobbler.of(
+                    process.getInputStream(),
+                    s -> this.printAndAppend(output, sink, prefix, s));
+            var errGobbler = StreamGobbler.of(
+                    process.getErrorStream(),
+                    s -> this.printAndAppend(error, sink, prefix, s));
+            var futureOut = executors.gobblers().submit(outGobbler);
+            var futureErr = executors.gobblers().submit(errGobbler);
+            var timeoutIn = inputAs(timeout, Long.class)
+                    .orElse(config().execTimeout());
+            trace("Waiting up to [{}] minutes for shell command to complete.", timeoutIn);
+            var isDone = process.waitFor(timeoutIn, TimeUnit.MINUTES);
+            futureOut.get(timeoutIn, TimeUnit.MINUTES);
+            futureErr.get(timeoutIn, TimeUnit.MINUTES);
+            var processExitCode = process.exitValue();
+            var processOutput = output.toString();
+            var processError = error.toString();
+            if (output.isTruncated() || error.isTruncated())
+                debug("Kept the last {} of {} stdout and {} stderr lines, full output in {}",
+                        tailLines, output.count(), error.count(), outputFile);
+            trace("[{}]$ {}\n{}\n{}", processExitCode, cmdLine, processOutput, processError);
+            success(exitCode, processExitCode);
+            success(stdout, processOutput);
+            success(stderr, processError);
+            success(ShellOutput.outputFile, outputFile);
+            var result = new ExecResult(processExitCode, processOutput, processError, outputFile);
+            return success(result);
+        }
     }
 
-
-
-    private String redact(String line) {
-        var original = ""+line;
-        line = redactRedundantLogLevel(line);
-        line = redactSecrets(line);
-        line = redactExports(line);
-        line = redactProfanity(line);
-        var redacted = ! original.equals(line);
-        var flag = redacted ? "?" : " ";
-        return "[%s] %s".formatted(flag, line);
+    /**
+     * Keeps the raw line in the tail, and writes it redacted to the output file and the log.
+     */
+    private void printAndAppend(OutputTail output, FileChannel sink, String prefix, String s) {
+        output.add(s);
+        var redacted = redactor.redact(s);
+        writeLine(sink, redacted);
+        s = "[%s] %s".formatted(redacted != s ? "?" : " ", redacted);
+        log(prefix == null ? s : "[%s] %s".formatted(prefix, s));
     }
 
-    private String redactProfanity(String line) {
-        line = line.replaceAll("[fF]uck", "f***");
-        return line;
+    private void writeLine(FileChannel sink, CharSequence line) {
+        try {
+            // A single write per line, so stdout and stderr lines do not tear each other
+            var bytes = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) sink.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
-    private String redactExports(String s) {
-        if (s.contains("export")) {
-            trace("Export readacted");
-            trace(s);
+    /**
+     * Creates a new owner-only file for the output of one command. The task directory is shared by
+     * every task started in the same millisecond, so a taken name moves on to the next number.
+     */
+    private Path newOutputFile(String prefix) throws IOException {
+        var name = prefix == null ? "exec" : "exec-" + prefix.replaceAll("[^a-zA-Z0-9]", "_");
+        while (true) {
+            var file = taskFile(this, "%s-%d.log".formatted(name, execCount.incrementAndGet()));
+            try {
+                return isPosix(file)
+                        ? Files.createFile(file, PosixFilePermissions.asFileAttribute(OWNER_ONLY))
+                        : Files.createFile(file);
+            } catch (FileAlreadyExistsException e) {
+                trace("Output file {} exists, trying the next one", file);
+            }
         }
-        return s;
     }
 
-    private String redactSecrets(String s) {
-        if (s.contains("password")) {
-            s = s.replaceAll(".*", "*");
-        }
-        return s;
+    private static boolean isPosix(Path file) {
+        return file.getFileSystem().supportedFileAttributeViews().contains("posix");
     }
 
-    static final String redundantLogLevelRegex = "level=(\\S+) msg=";
-    private String redactRedundantLogLevel(String s) {
-        return s.replaceAll(redundantLogLevelRegex,"");
+    /**
+     * The inherited environment with the env input applied (null values unset a variable),
+     * or null to inherit it unchanged.
+     */
+    @SuppressWarnings("unchecked")
+    private String[] environment() {
+        var overrides = input(env).map(m -> (Map<String, String>) m);
+        if (overrides.isEmpty()) return null;
+        var result = new HashMap<>(System.getenv());
+        overrides.get().forEach((k, v) -> {
+            if (v == null) result.remove(k);
+            else result.put(k, v);
+        });
+        return result.entrySet()
+                .stream()
+                .map(e -> e.getKey() + "=" + e.getValue())
+                .toArray(String[]::new);
     }
 
+
+
+
     private void log(String msg, Object... args) {
         switch (config().consoleLevel().toLowerCase()){
             case "trace" -> trace(msg, args);
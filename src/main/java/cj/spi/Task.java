@@ -184,6 +184,13 @@ public interface Task {
     }
 
 
+    /**
+     * Partition of the export this task belongs to, such as "account=123/region=us-east-1"
+     */
+    default String getPlacement() {
+        return null;
+    }
+
     default <T> List<T> outputList(Class<T> valueClass) {
         return outputList(TaskOutput.main, valueClass);
     }
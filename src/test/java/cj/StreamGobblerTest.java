@@ -0,0 +1,42 @@
+package cj;
+
+import cj.shell.OutputTail;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+public class StreamGobblerTest {
+    @Test
+    public void splitsUtf8Lines() {
+        var text = "level=debug ünïcode\r\nsecond\n\nlast without newline";
+        var lines = new ArrayList<String>();
+        StreamGobbler.of(new ByteArrayInputStream(text.getBytes(UTF_8)), lines::add).run();
+        assertEquals(List.of("level=debug ünïcode", "second", "", "last without newline"), lines);
+    }
+
+    @Test
+    public void keepsHeadOfOverlongLines() {
+        var longLine = "x".repeat(StreamGobbler.MAX_LINE_BYTES * 3);
+        var lines = new ArrayList<String>();
+        StreamGobbler.of(new ByteArrayInputStream((longLine + "\nnext\n").getBytes(UTF_8)), lines::add).run();
+        assertEquals(2, lines.size());
+        assertEquals(StreamGobbler.MAX_LINE_BYTES, lines.get(0).length());
+        assertEquals("next", lines.get(1));
+    }
+
+    @Test
+    public void tailKeepsLastLines() {
+        var tail = new OutputTail(3);
+        for (int i = 1; i <= 5; i++) tail.add("line " + i);
+        assertTrue(tail.isTruncated());
+        assertEquals(5, tail.count());
+        assertEquals("line 3\nline 4\nline 5\n", tail.toString());
+    }
+}
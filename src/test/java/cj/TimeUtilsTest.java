@@ -3,6 +3,7 @@ package cj;
 import io.quarkus.test.junit.QuarkusTest;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -19,4 +20,30 @@ public class TimeUtilsTest {
         assertTrue(actual.isPresent());
         assertEquals(expected, actual.get());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void parseTimeOfDayOnBaseDay(){
+        var line = "time=\"18:17:16.123456\" level=debug msg=\"Fetching install config\"";
+        var actual = TimeUtils.parseLocalDateTime(line, LocalDate.of(2023, 2, 8));
+        assertEquals(LocalDateTime.of(2023, 2, 8, 18, 17, 16, 123_000_000), actual.orElseThrow());
+    }
+
+    @Test
+    public void parseRFC3339WithOffset(){
+        var line = "level=info ts=2023-02-08T20:17:16.5+02:00 msg=\"ready\"";
+        var actual = TimeUtils.parseLocalDateTime(line);
+        assertEquals(LocalDateTime.of(2023, 2, 8, 18, 17, 16, 500_000_000), actual.orElseThrow());
+    }
+
+    @Test
+    public void parseSyslogInBaseYear(){
+        var line = "Feb  8 18:17:16 bootstrap kubelet[1234]: started";
+        var actual = TimeUtils.parseLocalDateTime(line, LocalDate.of(2023, 12, 31));
+        assertEquals(LocalDateTime.of(2023, 2, 8, 18, 17, 16), actual.orElseThrow());
+    }
+
+    @Test
+    public void ignoresInvalidDates(){
+        assertTrue(TimeUtils.parseLocalDateTime("build 20231399999999 took 12:00:00").isEmpty());
+    }
+}
@@ -0,0 +1,121 @@
+package cj.aws;
+
+import cj.RetryTask;
+import cj.TaskFailedException;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+public class AWSBatchTest {
+    @Test
+    public void splitsPartialFailuresBackToResources(){
+        var ids = IntStream.range(0, 800).mapToObj(i -> "i-" + i).toList();
+        var calls = new ArrayList<Integer>();
+        var batch = AWSBatch.<String>of(250, id -> id, chunk -> {
+            calls.add(chunk.size());
+            if (chunk.contains("i-42")) throw error("InvalidInstanceID.NotFound", "not found");
+            return chunk.contains("i-700") ? List.of("i-700") : List.of();
+        });
+        var result = batch.apply(ids);
+        assertEquals(798, result.succeeded().size());
+        assertEquals(List.of("i-42", "i-700"), List.copyOf(result.failed().keySet()));
+        assertEquals(250, calls.get(0));
+        assertTrue(result.calls().get() < 30, "calls: " + calls);
+    }
+
+    @Test
+    public void resendsWithoutTheResourcesNamedInTheError(){
+        var ids = IntStream.range(0, 800).mapToObj(i -> "i-" + i).toList();
+        var calls = new ArrayList<Integer>();
+        var batch = AWSBatch.<String>of(250, id -> id, chunk -> {
+            calls.add(chunk.size());
+            if (chunk.contains("i-42"))
+                throw error("InvalidInstanceID.NotFound", "The instance ID 'i-42' does not exist");
+            return List.of();
+        });
+        var result = batch.apply(ids);
+        assertEquals(799, result.succeeded().size());
+        assertEquals(List.of("i-42"), List.copyOf(result.failed().keySet()));
+        assertEquals(List.of(250, 249, 250, 250, 50), calls);
+    }
+
+    @Test
+    public void failsTheWholeChunkOnceOnSystemicErrors(){
+        var ids = IntStream.range(0, 800).mapToObj(i -> "i-" + i).toList();
+        var batch = AWSBatch.<String>of(250, id -> id, chunk -> {
+            throw error("UnauthorizedOperation", "You are not authorized to perform this operation.");
+        });
+        var result = batch.apply(ids);
+        assertEquals(4, result.calls().get());
+        assertEquals(800, result.failed().size());
+        assertTrue(result.succeeded().isEmpty());
+        assertEquals("UnauthorizedOperation", result.cause().get().awsErrorDetails().errorCode());
+    }
+
+    @Test
+    public void namesOnlyWholeIds(){
+        assertTrue(AWSBatch.names("The instance IDs 'i-4, i-42' do not exist", "i-4"));
+        assertFalse(AWSBatch.names("The instance ID 'i-42' does not exist", "i-4"));
+        assertFalse(AWSBatch.names("The instance ID 'ai-4' does not exist", "i-4"));
+    }
+
+    private static AwsServiceException error(String code, String message) {
+        return AwsServiceException.builder()
+                .message(message)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode(code).errorMessage(message).build())
+                .build();
+    }
+
+    @Test
+    public void requeuesDependencyViolations(){
+        var attempts = new AtomicInteger();
+        var dependency = AwsServiceException.builder()
+                .message("resource has a dependency")
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("DependencyViolation").build())
+                .build();
+        var batch = AWSBatch.<String>of(10, id -> id, chunk -> {
+            if (attempts.incrementAndGet() < 3) throw dependency;
+            return List.of();
+        });
+        Runnable phase = () -> {
+            var result = batch.apply(List.of("sg-1"));
+            if (!result.isSuccess()) {
+                // as the batched tasks fail, wrapped as Tasks.runSingle does
+                var failure = new TaskFailedException("Failed to delete 1 security groups", result.cause().get());
+                throw new RuntimeException(failure);
+            }
+        };
+        RetryTask.retryUntil("phase", phase, Instant.now().plusSeconds(30), AWSErrors::isDependencyError);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void doesNotRequeueOtherFailures(){
+        var attempts = new AtomicInteger();
+        var batch = AWSBatch.<String>of(10, id -> id, chunk -> {
+            attempts.incrementAndGet();
+            throw AwsServiceException.builder()
+                    .message("denied")
+                    .awsErrorDetails(AwsErrorDetails.builder().errorCode("UnauthorizedOperation").build())
+                    .build();
+        });
+        Runnable phase = () -> {
+            var result = batch.apply(List.of("sg-1"));
+            if (!result.isSuccess())
+                throw new TaskFailedException("Failed to delete 1 security groups", result.cause().get());
+        };
+        assertThrows(TaskFailedException.class, () ->
+                RetryTask.retryUntil("phase", phase, Instant.now().plusSeconds(30), AWSErrors::isDependencyError));
+        assertEquals(1, attempts.get());
+    }
+}
@@ -0,0 +1,130 @@
+package cj.aws.s3;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+public class MultipartUploadStreamTest {
+    static final int PART = MultipartUploadStream.MIN_PART_SIZE;
+
+    @Test
+    void putsSmallObjectsInOneCall() throws IOException {
+        var s3 = new RecordingS3();
+        var out = new MultipartUploadStream(s3, "bucket", "small", PART);
+        out.write("hello".getBytes());
+        out.close();
+        assertEquals(List.of("put"), s3.calls);
+        assertEquals("hello", s3.body.toString());
+    }
+
+    @Test
+    void uploadsPartsAndCompletes() throws IOException {
+        var s3 = new RecordingS3();
+        var data = new byte[2 * PART + 1234];
+        new Random(42).nextBytes(data);
+        var out = new MultipartUploadStream(s3, "bucket", "large", PART);
+        out.write(data, 0, 100);
+        out.write(data[100]);
+        out.write(data, 101, data.length - 101);
+        out.close();
+        assertEquals(List.of("create", "part 1", "part 2", "part 3", "complete 3"), s3.calls);
+        assertArrayEquals(data, s3.body.toByteArray());
+        assertEquals(data.length, out.size());
+    }
+
+    @Test
+    void abortDiscardsTheUpload() {
+        var s3 = new RecordingS3();
+        var out = new MultipartUploadStream(s3, "bucket", "aborted", PART);
+        out.write(new byte[PART + 1], 0, PART + 1);
+        out.abort();
+        assertEquals(List.of("create", "part 1", "abort"), s3.calls);
+    }
+
+    @Test
+    void abortsWhenCompletionFails() {
+        var s3 = new RecordingS3();
+        s3.failComplete = true;
+        var out = new MultipartUploadStream(s3, "bucket", "failed", PART);
+        out.write(new byte[PART + 1], 0, PART + 1);
+        assertThrows(IOException.class, out::close);
+        assertEquals(List.of("create", "part 1", "part 2", "abort"), s3.calls);
+    }
+
+    static class RecordingS3 implements S3Client {
+        final List<String> calls = new ArrayList<>();
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        boolean failComplete;
+
+        @Override
+        public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest request) {
+            calls.add("create");
+            return CreateMultipartUploadResponse.builder().uploadId("upload-1").build();
+        }
+
+        @Override
+        public UploadPartResponse uploadPart(UploadPartRequest request, RequestBody requestBody) {
+            calls.add("part " + request.partNumber());
+            append(requestBody);
+            return UploadPartResponse.builder().eTag("etag-" + request.partNumber()).build();
+        }
+
+        @Override
+        public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request) {
+            if (failComplete) throw new IllegalStateException("complete failed");
+            calls.add("complete " + request.multipartUpload().parts().size());
+            return CompleteMultipartUploadResponse.builder().build();
+        }
+
+        @Override
+        public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest request) {
+            calls.add("abort");
+            return AbortMultipartUploadResponse.builder().build();
+        }
+
+        @Override
+        public PutObjectResponse putObject(PutObjectRequest request, RequestBody requestBody) {
+            calls.add("put");
+            append(requestBody);
+            return PutObjectResponse.builder().build();
+        }
+
+        private void append(RequestBody requestBody) {
+            try (var in = requestBody.contentStreamProvider().newStream()) {
+                in.transferTo(body);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public String serviceName() {
+            return "s3";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
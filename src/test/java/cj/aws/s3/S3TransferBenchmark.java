@@ -0,0 +1,88 @@
+package cj.aws.s3;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares upload throughput of the Java and CRT S3 engines against an S3-compatible endpoint.
+ * See scripts/bench-s3-transfer.sh, which starts a local stand-in and runs this class.
+ */
+@EnabledIfSystemProperty(named = "cj.bench.s3.endpoint", matches = ".+")
+public class S3TransferBenchmark {
+    static final Logger log = LoggerFactory.getLogger(S3TransferBenchmark.class);
+    static final String BUCKET = "cj-bench-transfer";
+    static final Region REGION = Region.US_EAST_1;
+
+    static URI endpoint;
+    static Path video;
+
+    @BeforeAll
+    public static void createFile() throws IOException {
+        endpoint = URI.create(System.getProperty("cj.bench.s3.endpoint"));
+        var sizeMb = Long.getLong("cj.bench.s3.sizeMb", 4096);
+        video = Files.createTempFile("cj-bench", ".mp4");
+        var chunk = new byte[1024 * 1024];
+        try (var file = new RandomAccessFile(video.toFile(), "rw")) {
+            for (long i = 0; i < sizeMb; i++) {
+                ThreadLocalRandom.current().nextBytes(chunk);
+                file.write(chunk);
+            }
+        }
+        try (var s3 = S3Client.builder().region(REGION).endpointOverride(endpoint).forcePathStyle(true).build()) {
+            s3.createBucket(b -> b.bucket(BUCKET));
+        }
+    }
+
+    @AfterAll
+    public static void deleteFile() throws IOException {
+        Files.deleteIfExists(video);
+    }
+
+    @Test
+    public void javaEngine() {
+        upload("java", S3AsyncClient.builder()
+                .region(REGION)
+                .endpointOverride(endpoint)
+                .forcePathStyle(true)
+                .build());
+    }
+
+    @Test
+    public void crtEngine() {
+        upload("crt", S3AsyncClient.crtBuilder()
+                .region(REGION)
+                .endpointOverride(endpoint)
+                .targetThroughputInGbps(10.0)
+                .minimumPartSizeInBytes(8L * 1024 * 1024)
+                .build());
+    }
+
+    private void upload(String engine, S3AsyncClient client) {
+        try (client; var s3tm = S3TransferManager.builder().s3Client(client).build()) {
+            var start = System.nanoTime();
+            s3tm.uploadFile(b -> b.source(video)
+                            .putObjectRequest(r -> r.bucket(BUCKET).key(engine + ".mp4")))
+                    .completionFuture()
+                    .join();
+            var seconds = (System.nanoTime() - start) / 1e9;
+            var mb = video.toFile().length() / (1024.0 * 1024.0);
+            log.info("{} engine uploaded {} MB in {} s ({} MB/s)",
+                    engine, Math.round(mb), "%.1f".formatted(seconds), "%.1f".formatted(mb / seconds));
+        }
+    }
+}
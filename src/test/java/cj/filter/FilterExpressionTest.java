@@ -0,0 +1,52 @@
+package cj.filter;
+
+import cj.CloudResourceRecord;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import static cj.CloudResourceType.aws.instance;
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+public class FilterExpressionTest {
+    static final Instant NOW = Instant.parse("2023-03-01T12:00:00Z");
+
+    private CloudResourceRecord resource(String name, String state, Duration age, Map<String, String> tags) {
+        return CloudResourceRecord.of(instance, "i-123", name, state, "vpc-1", NOW.minus(age), tags);
+    }
+
+    @Test
+    public void matchesPrefixesTagsAndAge(){
+        var filter = FilterExpression.compile(
+                "name ^= [ci-, pr-] and tag:env = test and not state = terminated and age > 2d", NOW);
+        var tags = Map.of("env", "test");
+        assertTrue(filter.test(resource("ci-build-1", "running", Duration.ofDays(3), tags)));
+        assertTrue(filter.test(resource("pr-42", "running", Duration.ofDays(3), tags)));
+        assertFalse(filter.test(resource("prod-db", "running", Duration.ofDays(3), tags)));
+        assertFalse(filter.test(resource("ci-build-1", "TERMINATED", Duration.ofDays(3), tags)));
+        assertFalse(filter.test(resource("ci-build-1", "running", Duration.ofHours(1), tags)));
+        assertFalse(filter.test(resource("ci-build-1", "running", Duration.ofDays(3), Map.of())));
+    }
+
+    @Test
+    public void mergesOrPrefixesIntoOneTrie(){
+        var filter = FilterExpression.compile("name ^= a- or name ^= b- or name ~ 'c-*-x'", NOW);
+        var or = assertInstanceOf(ResourceFilter.Or.class, filter);
+        assertEquals(2, or.operands().size());
+        assertTrue(filter.test(resource("b-1", null, Duration.ZERO, Map.of())));
+        assertTrue(filter.test(resource("c-9-x", null, Duration.ZERO, Map.of())));
+        assertFalse(filter.test(resource("c-9-y", null, Duration.ZERO, Map.of())));
+        assertFalse(filter.test(resource(null, null, Duration.ZERO, Map.of())));
+    }
+
+    @Test
+    public void rejectsInvalidExpressions(){
+        assertThrows(IllegalArgumentException.class, () -> FilterExpression.compile("name ^= (a"));
+        assertThrows(IllegalArgumentException.class, () -> FilterExpression.compile("color = red"));
+        assertThrows(IllegalArgumentException.class, () -> FilterExpression.compile("age > soon"));
+    }
+}
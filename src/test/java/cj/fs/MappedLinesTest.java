@@ -0,0 +1,33 @@
+package cj.fs;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+public class MappedLinesTest {
+    @Test
+    void chunksAreLineAligned() throws IOException {
+        // given
+        var file = Files.createTempFile("mapped-lines", ".log");
+        var lines = IntStream.range(0, 1000)
+                .mapToObj(i -> "line " + i + " é".repeat(i % 7))
+                .toList();
+        Files.writeString(file, String.join("\n", lines));
+        // when
+        var chunks = TaskFiles.mapLines(file, 0, 1000);
+        var read = new ArrayList<String>();
+        chunks.forEach(chunk -> chunk.forEachLine(line -> read.add(line.toString())));
+        // then
+        assertTrue(chunks.size() > 10);
+        assertEquals(lines, read);
+        assertEquals(Files.size(file), chunks.get(chunks.size() - 1).end());
+        Files.delete(file);
+    }
+}
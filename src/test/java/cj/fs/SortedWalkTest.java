@@ -0,0 +1,33 @@
+package cj.fs;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+public class SortedWalkTest {
+    @Test
+    void walksInKeyOrder() throws IOException {
+        // given
+        var root = Files.createTempDirectory("sorted-walk");
+        Files.createDirectories(root.resolve("a"));
+        Files.writeString(root.resolve("a/b"), "1");
+        Files.writeString(root.resolve("a-c"), "2");
+        Files.writeString(root.resolve("a0"), "3");
+        Files.writeString(root.resolve("B"), "4");
+        // when
+        var keys = new ArrayList<String>();
+        new SortedWalk(root, null).forEachRemaining(e -> keys.add(e.key()));
+        // then
+        assertEquals(List.of("B", "a-c", "a/b", "a0"), keys);
+        var sorted = new ArrayList<>(keys);
+        sorted.sort(SortedWalk.CODE_POINT_ORDER);
+        assertEquals(keys, sorted);
+    }
+}
@@ -0,0 +1,58 @@
+package cj.logs;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+public class LogArchiveTest {
+    @Test
+    void gzipsBlocksInOrderAndCollectsTheTimeRange() throws IOException {
+        var log = Files.createTempFile("log-archive", ".log");
+        var text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            if (i % 10 == 0) text.append("2023-01-20 10:%02d:%02d event %d\n".formatted(i / 600, i / 10 % 60, i));
+            else text.append("continuation line %d\n".formatted(i));
+        }
+        Files.writeString(log, text);
+        var out = new ByteArrayOutputStream();
+        var pool = Executors.newFixedThreadPool(3);
+        LogArchive.Range range;
+        try {
+            range = LogArchive.archive(log, LocalDate.of(2023, 1, 20), out, 4096, pool, 3);
+        } finally {
+            pool.shutdown();
+        }
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(text.toString(), new String(in.readAllBytes()));
+        }
+        assertEquals(Files.size(log), range.bytes());
+        assertTrue(range.hasTimes());
+        assertEquals(Instant.parse("2023-01-20T10:00:00Z").toEpochMilli(), range.from());
+        assertEquals(Instant.parse("2023-01-20T10:08:19Z").toEpochMilli(), range.to());
+    }
+
+    @Test
+    void indexesObjectsByKey() {
+        var index = Map.of(
+                "logs/b.log.gz", new LogArchive.Range(0, 60_000, 10),
+                "logs/a \"1\".log.gz", LogArchive.Range.EMPTY);
+        assertEquals("""
+                {"objects":[
+                {"key":"logs/a \\"1\\".log.gz","bytes":0},
+                {"key":"logs/b.log.gz","bytes":10,"from":"1970-01-01T00:00:00Z","to":"1970-01-01T00:01:00Z"}
+                ]}
+                """, LogsPutTask.indexJson(index));
+    }
+}
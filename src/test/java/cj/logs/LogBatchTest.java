@@ -0,0 +1,52 @@
+package cj.logs;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.cloudwatchlogs.model.InputLogEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+public class LogBatchTest {
+    @Test
+    void splitsOnCountBytesAndSpan() {
+        // given 25,000 small events, 100 events of 100 KB and one event two days later
+        var events = new ArrayList<InputLogEvent>();
+        IntStream.range(0, 25_000).forEach(i -> events.add(event(1000L + i, "line " + i)));
+        IntStream.range(0, 100).forEach(i -> events.add(event(30_000L, "x".repeat(100 * 1024))));
+        events.add(event(2 * LogBatch.MAX_SPAN_MS, "late"));
+        // when
+        var sizes = new ArrayList<Integer>();
+        var batch = new LogBatch();
+        for (var event : events) {
+            if (!batch.offer(event)) {
+                sizes.add(send(batch.drain()));
+                assertTrue(batch.offer(event));
+            }
+        }
+        sizes.add(send(batch.drain()));
+        // then
+        assertEquals(List.of(10_000, 10_000), sizes.subList(0, 2));
+        assertEquals(1, sizes.get(sizes.size() - 1));
+        assertEquals(events.size(), sizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(sizes.size() < 20, "batches: " + sizes);
+    }
+
+    @Test
+    void countsUtf8Bytes() {
+        assertEquals(1 + 2 + 3 + 4, LogBatch.utf8Length("aé€😀"));
+    }
+
+    private static int send(List<InputLogEvent> batch) {
+        assertTrue(batch.stream().mapToInt(LogBatch::sizeOf).sum() <= LogBatch.MAX_BYTES);
+        return batch.size();
+    }
+
+    private static InputLogEvent event(long timestamp, String message) {
+        return InputLogEvent.builder().timestamp(timestamp).message(message).build();
+    }
+}
@@ -0,0 +1,83 @@
+package cj.logs;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+public class LogEventReaderTest {
+    static final LocalDate DAY = LocalDate.of(2023, 1, 20);
+
+    Path dir;
+
+    @BeforeEach
+    void createDir() throws IOException {
+        dir = Files.createTempDirectory("log-reader");
+    }
+
+    @Test
+    void tracksOffsetAndLastStart() throws IOException {
+        var log = Files.writeString(dir.resolve("app.log"), "a\n\nbb\r\nccc\n");
+        var messages = new ArrayList<String>();
+        var offsets = new ArrayList<Long>();
+        var starts = new ArrayList<Long>();
+        try (var reader = new LogEventReader(log, DAY, LogOffsets.Offset.START, false)) {
+            while (reader.hasNext()) {
+                messages.add(reader.next().message());
+                offsets.add(reader.offset());
+                starts.add(reader.lastStart());
+            }
+        }
+        assertEquals(List.of("a", "bb", "ccc"), messages);
+        assertEquals(List.of(2L, 7L, 11L), offsets);
+        assertEquals(List.of(0L, 2L, 7L), starts);
+    }
+
+    @Test
+    void resumesAtAnOffset() throws IOException {
+        var log = Files.writeString(dir.resolve("app.log"), "a\nbb\nccc\n");
+        var start = new LogOffsets.Offset(LogOffsets.fileKey(log), 2, -1);
+        try (var reader = new LogEventReader(log, DAY, start, false)) {
+            assertTrue(reader.hasNext());
+            assertEquals("bb", reader.next().message());
+            assertEquals(2, reader.lastStart());
+            assertEquals(5, reader.offset());
+        }
+    }
+
+    @Test
+    void returnsAnUnterminatedLastLineUnlessTailing() throws IOException {
+        var log = Files.writeString(dir.resolve("app.log"), "a\nb");
+        try (var reader = new LogEventReader(log, DAY, LogOffsets.Offset.START, false)) {
+            reader.next();
+            assertEquals("b", reader.next().message());
+            assertEquals(3, reader.offset());
+        }
+    }
+
+    @Test
+    void tailHoldsBackPartialLinesAndPicksUpAppends() throws IOException {
+        var log = Files.writeString(dir.resolve("app.log"), "a\nb");
+        try (var reader = new LogEventReader(log, DAY, LogOffsets.Offset.START, true)) {
+            assertEquals("a", reader.next().message());
+            assertFalse(reader.hasNext(), "the unterminated line is held back");
+            assertEquals(2, reader.offset());
+            Files.writeString(log, "c\nd\n", StandardOpenOption.APPEND);
+            assertTrue(reader.hasNext());
+            assertEquals("bc", reader.next().message());
+            assertEquals("d", reader.next().message());
+            assertEquals(7, reader.offset());
+            assertFalse(reader.hasNext());
+        }
+    }
+}
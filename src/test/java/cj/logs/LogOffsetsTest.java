@@ -0,0 +1,70 @@
+package cj.logs;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+public class LogOffsetsTest {
+    Path dir;
+
+    @BeforeEach
+    void createDir() throws IOException {
+        dir = Files.createTempDirectory("log-offsets");
+    }
+
+    @Test
+    void resumesFromTheCommittedOffset() throws IOException {
+        var log = Files.writeString(dir.resolve("app.log"), "one\ntwo\nthree\n");
+        var offsets = LogOffsets.open(dir.resolve("offsets"));
+        offsets.commit(log, "app", 8, 1234L);
+        var start = LogOffsets.open(dir.resolve("offsets")).start(log, "app");
+        assertEquals(8, start.offset());
+        assertEquals(1234L, start.timestamp());
+        assertEquals(LogOffsets.Offset.START, LogOffsets.open(dir.resolve("offsets")).start(log, "other"));
+    }
+
+    @Test
+    void startsOverWhenTruncated() throws IOException {
+        var log = Files.writeString(dir.resolve("app.log"), "one\ntwo\nthree\n");
+        LogOffsets.open(dir.resolve("offsets")).commit(log, "app", 14, 1234L);
+        try (var channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(4);
+        }
+        assertEquals(LogOffsets.Offset.START, LogOffsets.open(dir.resolve("offsets")).start(log, "app"));
+    }
+
+    @Test
+    void startsOverWhenRotated() throws IOException {
+        var log = Files.writeString(dir.resolve("app.log"), "one\ntwo\n");
+        LogOffsets.open(dir.resolve("offsets")).commit(log, "app", 4, 1234L);
+        // keep the old file around so the new one cannot reuse its inode
+        Files.move(log, dir.resolve("app.log.1"));
+        Files.writeString(log, "four\nfive\nsix\n");
+        assertEquals(LogOffsets.Offset.START, LogOffsets.open(dir.resolve("offsets")).start(log, "app"));
+    }
+
+    @Test
+    void writesThrottledCommitsOnClose() throws IOException {
+        var log = Files.writeString(dir.resolve("app.log"), "one\ntwo\nthree\n");
+        var path = dir.resolve("offsets");
+        try (var offsets = LogOffsets.open(path, Duration.ofHours(1))) {
+            offsets.commit(log, "app", 4, 1L);
+            offsets.commit(log, "app", 8, 2L);
+            assertFalse(Files.exists(path), "commits within the interval are not written");
+            assertEquals(8, offsets.start(log, "app").offset());
+        }
+        var start = LogOffsets.open(path).start(log, "app");
+        assertEquals(8, start.offset());
+        assertEquals(2L, start.timestamp());
+    }
+}
@@ -0,0 +1,78 @@
+package cj.logs;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+public class MappedLogEventReaderTest {
+    static final LocalDate DAY = LocalDate.of(2023, 1, 20);
+
+    record Read(String message, long timestamp, long offset, long lastStart) {}
+
+    @Test
+    void readsLikeTheSequentialReader() throws IOException {
+        var log = Files.createTempFile("mapped-reader", ".log");
+        var text = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            if (i % 7 == 0) text.append("\n");
+            if (i % 3 == 0) text.append("2023-01-20 10:%02d:%02d INFO event %d\n".formatted(i / 60 % 60, i % 60, i));
+            else text.append("untimed continuation %d\r\n".formatted(i));
+        }
+        Files.writeString(log, text);
+        var pool = Executors.newFixedThreadPool(4);
+        var readAhead = new Semaphore(3);
+        try {
+            var expected = read(new LogEventReader(log, DAY, LogOffsets.Offset.START, false));
+            var actual = read(new MappedLogEventReader(log, DAY, LogOffsets.Offset.START, 4096, pool, readAhead));
+            assertEquals(2000, expected.size());
+            assertEquals(expected, actual);
+            // resume after the 500th event, as from a committed offset
+            var resumed = expected.get(499);
+            var start = new LogOffsets.Offset(LogOffsets.fileKey(log), resumed.offset(), resumed.timestamp());
+            var rest = read(new MappedLogEventReader(log, DAY, start, 4096, pool, readAhead));
+            assertEquals(read(new LogEventReader(log, DAY, start, false)), rest);
+            assertEquals(expected.get(500).message(), rest.get(0).message());
+            assertEquals(3, readAhead.availablePermits());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void returnsPermitsWhenClosedEarly() throws IOException {
+        var log = Files.createTempFile("mapped-reader", ".log");
+        Files.writeString(log, "line\n".repeat(10_000));
+        var pool = Executors.newFixedThreadPool(2);
+        var readAhead = new Semaphore(2);
+        try (var reader = new MappedLogEventReader(log, DAY, LogOffsets.Offset.START, 1024, pool, readAhead)) {
+            assertTrue(reader.hasNext());
+            reader.next();
+            assertEquals(0, readAhead.availablePermits());
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(2, readAhead.availablePermits());
+    }
+
+    private static List<Read> read(LogEvents events) {
+        var result = new ArrayList<Read>();
+        try (events) {
+            while (events.hasNext()) {
+                var event = events.next();
+                result.add(new Read(event.message(), event.timestamp(), events.offset(), events.lastStart()));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,40 @@
+package cj.qute;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+public class TemplatesTest {
+    @Inject
+    Templates templates;
+
+    @Test
+    public void rendersEachAccountFromOneParsedTemplate() throws Exception {
+        var location = "aws-nuke/default/aws-nuke.qute.yaml";
+        var first = templates.render("aws-nuke", "aws-nuke.qute.yaml", "111111111111-aws-nuke.yaml",
+                Map.of("accountId", "111111111111"));
+        var second = templates.render("aws-nuke", "aws-nuke.qute.yaml", "222222222222-aws-nuke.yaml",
+                Map.of("accountId", "222222222222"));
+        var content = Files.readString(second);
+        assertTrue(Files.readString(first).contains("\"111111111111\": {}"));
+        assertTrue(content.contains("\"222222222222\": {}"));
+        assertEquals(templates.renderString("aws-nuke", location, Map.of("accountId", "222222222222")), content);
+    }
+
+    @Test
+    public void bypassExpressionsReadParamsOverSharedData() {
+        var expr = "{templatePath.get('aws-nuke.yaml')}";
+        var params = Map.<String, Object>of(
+                "args", "--quiet",
+                "templatePath", Map.of("aws-nuke.yaml", "/tmp/123-aws-nuke.yaml"));
+        assertEquals("/tmp/123-aws-nuke.yaml", templates.fmt(expr, params));
+        assertEquals("/tmp/123-aws-nuke.yaml", templates.fmt(expr, params));
+        assertEquals("--quiet", templates.fmt("{args}", params));
+    }
+}
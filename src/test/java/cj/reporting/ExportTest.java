@@ -0,0 +1,61 @@
+package cj.reporting;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.LocalInputFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+public class ExportTest {
+    @Test
+    void writesTypedColumnsAndLeavesNullsUnset() throws IOException {
+        var file = Files.createTempFile("inventory", ".parquet");
+        var created = Instant.parse("2023-01-20T10:15:30.123Z");
+        try (var writer = Export.open(file, Export.INVENTORY_SCHEMA)) {
+            writer.write(Export.row(Export.INVENTORY_SCHEMA,
+                    "exec-1", "Instance", "i-1", "web", "running", "vpc-1", created, true, "env=dev", null));
+            writer.write(Export.row(Export.INVENTORY_SCHEMA,
+                    "exec-1", "Instance", "i-2", null, null, null, null, false, null, null));
+        }
+
+        var rows = new ArrayList<Group>();
+        try (var reader = ParquetFileReader.open(new LocalInputFile(file))) {
+            var schema = reader.getFooter().getFileMetaData().getSchema();
+            assertEquals(Export.INVENTORY_SCHEMA, schema);
+            var columns = new ColumnIOFactory().getColumnIO(schema);
+            for (var pages = reader.readNextRowGroup(); pages != null; pages = reader.readNextRowGroup()) {
+                var records = columns.getRecordReader(pages, new GroupRecordConverter(schema));
+                for (long i = 0; i < pages.getRowCount(); i++) rows.add(records.read());
+            }
+        }
+
+        assertEquals(2, rows.size());
+        var first = rows.get(0);
+        assertEquals("exec-1", first.getString("execution_id", 0));
+        assertEquals("web", first.getString("name", 0));
+        assertEquals(created.toEpochMilli(), first.getLong("create_time", 0));
+        assertTrue(first.getBoolean("matches_filter", 0));
+        assertEquals(0, first.getFieldRepetitionCount("properties"));
+        var second = rows.get(1);
+        assertEquals("i-2", second.getString("id", 0));
+        assertEquals(0, second.getFieldRepetitionCount("name"));
+        assertEquals(0, second.getFieldRepetitionCount("create_time"));
+        assertFalse(second.getBoolean("matches_filter", 0));
+    }
+
+    @Test
+    void rejectsValuesWithoutAColumnType() {
+        assertThrows(IllegalArgumentException.class,
+                () -> Export.row(Export.EXECUTOR_SCHEMA, "exec-1", "io", 1.5));
+    }
+}
@@ -0,0 +1,108 @@
+package cj.shell;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+public class PackageCacheTest {
+    @Test
+    public void installsOnceAndServesFromCache() throws Exception {
+        var work = Files.createTempDirectory("pkg-cache");
+        var archive = tarGz(work.resolve("tool-1.0.tar.gz"), "bin/tool", "#!/bin/sh\necho tool\n");
+        var url = archive.toUri().toURL() + "#sha256=" + PackageCache.sha256OfFile(archive);
+        var cache = new PackageCache(work.resolve("cache"));
+
+        var installed = cache.install(url);
+        var tool = installed.resolve("bin/tool");
+        assertEquals("#!/bin/sh\necho tool\n", Files.readString(tool));
+        assertTrue(Files.isExecutable(tool));
+        assertTrue(Files.exists(installed.resolve(PackageCache.MARKER)));
+
+        Files.delete(archive);
+        assertEquals(installed, cache.install(url));
+    }
+
+    @Test
+    public void rejectsDigestMismatch() throws Exception {
+        var work = Files.createTempDirectory("pkg-cache");
+        var archive = tarGz(work.resolve("bad-1.0.tgz"), "bad", "bad");
+        var url = archive.toUri().toURL() + "#sha256=" + "0".repeat(64);
+        var cache = new PackageCache(work.resolve("cache"));
+        assertThrows(UncheckedIOException.class, () -> cache.install(url));
+        assertFalse(Files.exists(cache.entry(url).marker()));
+    }
+
+    @Test
+    public void reinstallsWhenTheExpectedDigestChanges() throws Exception {
+        var work = Files.createTempDirectory("pkg-cache");
+        var archive = tarGz(work.resolve("tool-1.0.tar.gz"), "bin/tool", "v1");
+        var cache = new PackageCache(work.resolve("cache"));
+        cache.install(archive.toUri().toURL() + "#sha256=" + PackageCache.sha256OfFile(archive));
+
+        tarGz(archive, "bin/tool", "v2");
+        var installed = cache.install(archive.toUri().toURL() + "#sha256=" + PackageCache.sha256OfFile(archive));
+        assertEquals("v2", Files.readString(installed.resolve("bin/tool")));
+        assertEquals(PackageCache.sha256OfFile(archive), Files.readString(installed.resolve(PackageCache.MARKER)));
+    }
+
+    @Test
+    public void keepsTheVerifiedPackageOnDigestMismatch() throws Exception {
+        var work = Files.createTempDirectory("pkg-cache");
+        var archive = tarGz(work.resolve("tool-1.0.tar.gz"), "bin/tool", "v1");
+        var cache = new PackageCache(work.resolve("cache"));
+        var installed = cache.install(archive.toUri().toURL() + "#sha256=" + PackageCache.sha256OfFile(archive));
+
+        tarGz(archive, "bin/tool", "tampered");
+        var url = archive.toUri().toURL() + "#sha256=" + "0".repeat(64);
+        assertThrows(UncheckedIOException.class, () -> cache.install(url));
+        assertEquals("v1", Files.readString(installed.resolve("bin/tool")));
+        try (var siblings = Files.list(installed.getParent())) {
+            assertEquals(List.of(), siblings.filter(p -> p.getFileName().toString().contains(".staging-")).toList());
+        }
+    }
+
+    @Test
+    public void serializesConcurrentInstalls() throws Exception {
+        var work = Files.createTempDirectory("pkg-cache");
+        var archive = tarGz(work.resolve("tool-1.0.tar.gz"), "bin/tool", "#!/bin/sh\necho tool\n");
+        var url = archive.toUri().toURL() + "#sha256=" + PackageCache.sha256OfFile(archive);
+        var cache = new PackageCache(work.resolve("cache"));
+        var pool = Executors.newFixedThreadPool(8);
+        try {
+            var installs = new ArrayList<Future<Path>>();
+            for (int i = 0; i < 8; i++) installs.add(pool.submit(() -> cache.install(url)));
+            for (var install : installs) {
+                assertEquals("#!/bin/sh\necho tool\n", Files.readString(install.get().resolve("bin/tool")));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Path tarGz(Path file, String name, String content) throws Exception {
+        var bytes = content.getBytes(StandardCharsets.UTF_8);
+        try (var tar = new TarArchiveOutputStream(new GzipCompressorOutputStream(Files.newOutputStream(file)))) {
+            var entry = new TarArchiveEntry(name);
+            entry.setSize(bytes.length);
+            entry.setMode(0755);
+            tar.putArchiveEntry(entry);
+            tar.write(bytes);
+            tar.closeArchiveEntry();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,38 @@
+package cj.shell;
+
+import cj.TaskTest;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+public class ShellTaskTest extends TaskTest {
+    @Inject
+    Instance<ShellTask> shells;
+
+    @Test
+    void writesRedactedOutputToAnOwnerOnlyFile() throws IOException {
+        var first = run("echo password=hunter2; echo plain");
+        var second = run("echo again");
+        assertNotEquals(first, second);
+        var lines = Files.readAllLines(first);
+        assertTrue(lines.contains("plain"), "lines: " + lines);
+        assertTrue(lines.stream().noneMatch(l -> l.contains("hunter2")), "lines: " + lines);
+        if (first.getFileSystem().supportedFileAttributeViews().contains("posix"))
+            assertEquals(ShellTask.OWNER_ONLY, Files.getPosixFilePermissions(first));
+    }
+
+    private Path run(String script) {
+        var task = shells.get().withInput(ShellInput.prompt, List.of("sh", "-c", script));
+        submit(task);
+        return task.outputAs(ShellOutput.outputFile, Path.class).orElseThrow();
+    }
+}